@@ -0,0 +1,20 @@
+package com.upgrad.quora.api.common;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a controller method parameter which receives the user signed in with the access token of the 'authorization' header.
+ * A UserEntity parameter receives the complete user; a String parameter receives only the uuid of the user, which can be
+ * resolved without going to the database when the token is verified statelessly.
+ * The request is rejected with ATHR-001 when the token is unknown and with ATHR-002 and the signedOutMessage when the
+ * user has signed out.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AuthenticatedUser {
+
+    String signedOutMessage() default "User is signed out";
+}
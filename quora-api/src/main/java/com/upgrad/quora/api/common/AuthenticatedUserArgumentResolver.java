@@ -0,0 +1,77 @@
+package com.upgrad.quora.api.common;
+
+import com.upgrad.quora.service.business.AuthenticationService;
+import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.ServletRequestBindingException;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Resolves the parameters annotated with AuthenticatedUser. The access token is checked once per request and the resolved
+ * principal is kept in request scope, so nothing else handling the same request has to look it up again.
+ */
+@Component
+public class AuthenticatedUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    public static final String AUTHORIZATION_HEADER = "authorization";
+
+    private static final String USER_ATTRIBUTE = AuthenticatedUserArgumentResolver.class.getName() + ".USER";
+
+    private static final String USER_UUID_ATTRIBUTE = AuthenticatedUserArgumentResolver.class.getName() + ".USER_UUID";
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Override
+    public boolean supportsParameter(final MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(AuthenticatedUser.class)
+                && (parameter.getParameterType() == UserEntity.class || parameter.getParameterType() == String.class);
+    }
+
+    @Override
+    public Object resolveArgument(final MethodParameter parameter, final ModelAndViewContainer mavContainer,
+                                  final NativeWebRequest webRequest, final WebDataBinderFactory binderFactory) throws Exception {
+        final String signedOutMessage = parameter.getParameterAnnotation(AuthenticatedUser.class).signedOutMessage();
+        if (parameter.getParameterType() == UserEntity.class) {
+            return resolveUser(webRequest, signedOutMessage);
+        }
+        return resolveUserUuid(webRequest, signedOutMessage);
+    }
+
+    private UserEntity resolveUser(final NativeWebRequest webRequest, final String signedOutMessage) throws AuthorizationFailedException, ServletRequestBindingException {
+        UserEntity user = (UserEntity) webRequest.getAttribute(USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (user == null) {
+            user = authenticationService.authenticate(getAccessToken(webRequest), signedOutMessage);
+            webRequest.setAttribute(USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
+
+    private String resolveUserUuid(final NativeWebRequest webRequest, final String signedOutMessage) throws AuthorizationFailedException, ServletRequestBindingException {
+        final UserEntity user = (UserEntity) webRequest.getAttribute(USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (user != null) {
+            return user.getUuid();
+        }
+        String userUuid = (String) webRequest.getAttribute(USER_UUID_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (userUuid == null) {
+            userUuid = authenticationService.authenticateUuid(getAccessToken(webRequest), signedOutMessage);
+            webRequest.setAttribute(USER_UUID_ATTRIBUTE, userUuid, RequestAttributes.SCOPE_REQUEST);
+        }
+        return userUuid;
+    }
+
+    private String getAccessToken(final NativeWebRequest webRequest) throws ServletRequestBindingException {
+        final String accessToken = webRequest.getHeader(AUTHORIZATION_HEADER);
+        if (accessToken == null) {
+            throw new ServletRequestBindingException("Missing request header '" + AUTHORIZATION_HEADER + "'");
+        }
+        return accessToken;
+    }
+}
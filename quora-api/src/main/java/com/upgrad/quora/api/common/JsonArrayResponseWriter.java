@@ -0,0 +1,65 @@
+package com.upgrad.quora.api.common;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes a JSON array to the servlet response one element at a time, so bulk listings do not have to build the complete
+ * list of entities, the complete list of response models and the complete response body on the heap.
+ * Nothing is written to the response until the first element (or the end of the array) arrives, so exceptions thrown
+ * before that, e.g. authorization failures, are still rendered by the exception handler.
+ */
+public class JsonArrayResponseWriter {
+
+    private final HttpServletResponse response;
+
+    private final ObjectMapper objectMapper;
+
+    private JsonGenerator generator;
+
+    public JsonArrayResponseWriter(final HttpServletResponse response, final ObjectMapper objectMapper) {
+        this.response = response;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * This method serialises one element of the array straight to the response
+     *
+     * @param element
+     */
+    public void write(final Object element) {
+        try {
+            start();
+            generator.writeObject(element);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * This method closes the array and flushes the response; an empty array is written if no element was written
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        start();
+        generator.writeEndArray();
+        generator.flush();
+    }
+
+    private void start() throws IOException {
+        if (generator == null) {
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+            generator = objectMapper.getFactory().createGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+            generator.writeStartArray();
+        }
+    }
+}
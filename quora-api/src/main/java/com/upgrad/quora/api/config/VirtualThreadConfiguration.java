@@ -0,0 +1,76 @@
+package com.upgrad.quora.api.config;
+
+import org.apache.coyote.AbstractProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This Configuration runs every request, and so the blocking JPA calls made by the controllers, on its own virtual thread
+ * instead of on the fixed Tomcat worker pool. It is enabled with quora.server.virtual-threads=true and needs a Java 21
+ * runtime; the executor is looked up reflectively so the application still compiles for the current baseline. On an
+ * older runtime a warning is logged and the requests stay on the Tomcat worker pool.
+ * The number of concurrent transactions stays bounded by the DatabaseConcurrencyLimiter of the service layer.
+ */
+@Configuration
+@ConditionalOnProperty(name = "quora.server.virtual-threads", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadConfiguration.class);
+
+    //ms the requests still running at shutdown are given to complete
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
+    private final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadExecutorCustomizer() {
+        return factory -> {
+            if (executor != null) {
+                factory.addConnectorCustomizers(connector -> ((AbstractProtocol<?>) connector.getProtocolHandler()).setExecutor(executor));
+            }
+        };
+    }
+
+    /**
+     * @return - the executor running the requests, null when they run on the Tomcat worker pool
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * This method stops taking requests on new virtual threads and waits for the running ones, when the application
+     * context is closed. Tomcat does not shut down an executor it was given.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Requests still running on virtual threads after {} ms at shutdown", SHUTDOWN_TIMEOUT_MILLIS);
+            }
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            LOGGER.warn("quora.server.virtual-threads requires Java 21 or later, running on {}; requests stay on the Tomcat worker pool",
+                    System.getProperty("java.version"));
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create the virtual thread executor", e);
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package com.upgrad.quora.api.controller;
 
+import com.upgrad.quora.api.common.AuthenticatedUser;
 import com.upgrad.quora.api.model.UserDeleteResponse;
 import com.upgrad.quora.service.business.AdminBusinessService;
 import com.upgrad.quora.service.entity.UserEntity;
-import com.upgrad.quora.service.exception.AuthenticationFailedException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,18 +21,17 @@ public class AdminController {
     /**
      * Controller method to delete the user with mapping '/admin/user/{userId}'
      *
-     * @param userUuid      - userid of the user who has to be deleted
-     * @param authorization - authrization header of the logged in user
+     * @param userUuid - userid of the user who has to be deleted
+     * @param user     - the logged in user
      * @return
      * @throws UserNotFoundException
-     * @throws AuthenticationFailedException
      * @throws AuthorizationFailedException
      */
     @RequestMapping(method = RequestMethod.DELETE, path = "/admin/user/{userId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<UserDeleteResponse> deleteUser(@PathVariable("userId") final String userUuid,
-                                                         @RequestHeader("authorization") final String authorization)
-            throws UserNotFoundException, AuthenticationFailedException, AuthorizationFailedException {
-        final UserEntity userEntity = adminBusinessService.deleteUser(userUuid, authorization);
+                                                         @AuthenticatedUser final UserEntity user)
+            throws UserNotFoundException, AuthorizationFailedException {
+        final UserEntity userEntity = adminBusinessService.deleteUser(userUuid, user);
         UserDeleteResponse userDeleteResponse = new UserDeleteResponse();
         userDeleteResponse.id(userEntity.getUuid()).setStatus("USER SUCCESSFULLY DELETED");
         return new ResponseEntity<UserDeleteResponse>(userDeleteResponse, HttpStatus.OK);
@@ -1,19 +1,29 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.api.common.AuthenticatedUser;
+import com.upgrad.quora.api.common.JsonArrayResponseWriter;
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.AnswerService;
+import com.upgrad.quora.service.business.ListingStreamService;
+import com.upgrad.quora.service.dto.AnswerDetails;
 import com.upgrad.quora.service.entity.AnswerEntity;
-import com.upgrad.quora.service.entity.UserAuthTokenEntity;
+import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidAnswerBatchException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import springfox.documentation.annotations.ApiIgnore;
 
 import javax.print.attribute.standard.Media;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -24,17 +34,22 @@ public class AnswerController {
     @Autowired
     private AnswerService answerService;
 
+    @Autowired
+    private ListingStreamService listingStreamService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
 
     /**
      * This controller is invoked when request pattern matches /question/{questionId}/answer/create
      * and main purpose is to create answer for a existing question
      *
-     * @param accessToken
+     * @param user          - the signed in user
      * @param questionId
      * @param answerRequest
      * @return
      * @throws InvalidQuestionException
-     * @throws AuthorizationFailedException
      */
 
     @RequestMapping(
@@ -43,11 +58,12 @@ public class AnswerController {
             consumes = MediaType.APPLICATION_JSON_UTF8_VALUE,
             produces = MediaType.APPLICATION_JSON_UTF8_VALUE
     )
-    public ResponseEntity<AnswerResponse> createAnswer(@RequestHeader("authorization") String accessToken, @PathVariable("questionId") String questionId, AnswerRequest answerRequest) throws InvalidQuestionException, AuthorizationFailedException {
+    public ResponseEntity<AnswerResponse> createAnswer(@AuthenticatedUser(signedOutMessage = "User is signed out.Sign in first to post an answer") UserEntity user,
+                                                       @PathVariable("questionId") String questionId, AnswerRequest answerRequest) throws InvalidQuestionException {
 
         AnswerEntity answerEntity = new AnswerEntity();
         answerEntity.setAnswer(answerRequest.getAnswer());
-        answerEntity = answerService.createAnswer(answerEntity, accessToken, questionId);
+        answerEntity = answerService.createAnswer(answerEntity, user, questionId);
 
         AnswerResponse answerResponse = new AnswerResponse();
         answerResponse.setId(answerEntity.getUuid());
@@ -56,11 +72,44 @@ public class AnswerController {
         return new ResponseEntity<AnswerResponse>(answerResponse, HttpStatus.CREATED);
     }
 
+    /**
+     * This controller is invoked when request pattern matches /question/{questionId}/answer/batch
+     * and main purpose is to create many answers for a existing question in one request
+     *
+     * @param user               - the signed in user
+     * @param questionId
+     * @param answerBatchRequest - JSON body with the answers
+     * @return uuids of the created answers, in the order of the request
+     * @throws InvalidAnswerBatchException
+     * @throws InvalidQuestionException
+     */
+
+    @RequestMapping(
+            method = RequestMethod.POST,
+            path = "/question/{questionId}/answer/batch",
+            consumes = MediaType.APPLICATION_JSON_UTF8_VALUE,
+            produces = MediaType.APPLICATION_JSON_UTF8_VALUE
+    )
+    public ResponseEntity<AnswerBatchResponse> createAnswers(@AuthenticatedUser(signedOutMessage = "User is signed out.Sign in first to post an answer") UserEntity user,
+                                                             @PathVariable("questionId") String questionId,
+                                                             @RequestBody AnswerBatchRequest answerBatchRequest) throws InvalidAnswerBatchException, InvalidQuestionException {
+
+        final List<AnswerEntity> answerEntities = answerService.createAnswers(answerBatchRequest.getAnswers(), user, questionId);
+
+        final List<String> ids = new ArrayList<>(answerEntities.size());
+        for (AnswerEntity answerEntity : answerEntities) {
+            ids.add(answerEntity.getUuid());
+        }
+        AnswerBatchResponse answerBatchResponse = new AnswerBatchResponse().ids(ids).status("ANSWERS CREATED");
+
+        return new ResponseEntity<AnswerBatchResponse>(answerBatchResponse, HttpStatus.CREATED);
+    }
+
     /**
      * This controller is invoked when request pattern matches /answer/edit/{answerId}
      * and main purpose is to allow user update the existing question's answer in the DB
      *
-     * @param accessToken
+     * @param user              - the signed in user
      * @param answerId
      * @param answerEditRequest
      * @return
@@ -74,11 +123,12 @@ public class AnswerController {
             consumes = MediaType.APPLICATION_JSON_UTF8_VALUE,
             produces = MediaType.APPLICATION_JSON_UTF8_VALUE
     )
-    public ResponseEntity<AnswerEditResponse> editAnswer(@RequestHeader("authorization") String accessToken, @PathVariable("answerId") String answerId, AnswerEditRequest answerEditRequest) throws AuthorizationFailedException, AnswerNotFoundException {
+    public ResponseEntity<AnswerEditResponse> editAnswer(@AuthenticatedUser(signedOutMessage = "User is signed out.Sign in first to edit an answer") UserEntity user,
+                                                         @PathVariable("answerId") String answerId, AnswerEditRequest answerEditRequest) throws AuthorizationFailedException, AnswerNotFoundException {
 
         AnswerEntity answerEntity = new AnswerEntity();
         String answer = answerEditRequest.getContent();
-        answerEntity = answerService.editAnswer(answer, accessToken, answerId);
+        answerEntity = answerService.editAnswer(answer, user, answerId);
 
         AnswerEditResponse answerEditResponse = new AnswerEditResponse();
         answerEditResponse.setId(answerEntity.getUuid());
@@ -92,7 +142,7 @@ public class AnswerController {
      * This controller is invoked when request pattern matches /answer/delete/{answerId} and
      * main purpose is to store delete existing answer for a question
      *
-     * @param accessToken
+     * @param user     - the signed in user
      * @param answerId
      * @return
      * @throws AuthorizationFailedException
@@ -104,9 +154,10 @@ public class AnswerController {
             path = "/answer/delete/{answerId}",
             produces = MediaType.APPLICATION_JSON_UTF8_VALUE
     )
-    public ResponseEntity<AnswerDeleteResponse> deleteAnswer(@RequestHeader("authorization") String accessToken, @PathVariable("answerId") String answerId) throws AuthorizationFailedException, AnswerNotFoundException {
+    public ResponseEntity<AnswerDeleteResponse> deleteAnswer(@AuthenticatedUser(signedOutMessage = "User is signed out.Sign in first to delete an answer") UserEntity user,
+                                                             @PathVariable("answerId") String answerId) throws AuthorizationFailedException, AnswerNotFoundException {
 
-        AnswerEntity answerEntity = answerService.deleteAnswer(answerId, accessToken);
+        AnswerEntity answerEntity = answerService.deleteAnswer(answerId, user);
         AnswerDeleteResponse answerDeleteResponse = new AnswerDeleteResponse();
         answerDeleteResponse.setId(answerEntity.getUuid());
         answerDeleteResponse.setStatus("ANSWER DELETED");
@@ -119,29 +170,56 @@ public class AnswerController {
      * This controller is invoked when request pattern matches /question/all/{questionId} and main purpose is to fetch
      * all answers for a specific question from DB
      *
-     * @param accessToken
+     * @param userUuid   - uuid of the signed in user
      * @param questionId
-     * @return
-     * @throws AuthorizationFailedException
+     * @param response   - the answer array is streamed to the response one answer at a time
      * @throws InvalidQuestionException
+     * @throws IOException
      */
     @RequestMapping(
             method = RequestMethod.GET,
             path = "/answer/all/{questionId}",
             produces = MediaType.APPLICATION_JSON_UTF8_VALUE
     )
-    public ResponseEntity<List<AnswerDetailsResponse>> getAllAnswersToQuestion(@RequestHeader("authorization") String accessToken, @PathVariable("questionId") String questionId) throws AuthorizationFailedException, InvalidQuestionException {
-        List<AnswerEntity> answers = answerService.getAllAnswersToQeuestion(questionId, accessToken);
-        List<AnswerDetailsResponse> answerDetailsResponses = new ArrayList<>();
-
-        for (AnswerEntity answerEntity : answers) {
-            AnswerDetailsResponse answerDetailsResponse = new AnswerDetailsResponse();
-            answerDetailsResponse.setAnswerContent(answerEntity.getAnswer());
-            answerDetailsResponse.setId(answerEntity.getUuid());
-            answerDetailsResponse.setQuestionContent(answerEntity.getQuestionEntity().getContent());
-            answerDetailsResponses.add(answerDetailsResponse);
-        }
-        return new ResponseEntity<List<AnswerDetailsResponse>>(answerDetailsResponses, HttpStatus.OK);
+    public void getAllAnswersToQuestion(@ApiIgnore @AuthenticatedUser(signedOutMessage = "User is signed out.Sign in first to get the answers") String userUuid,
+                                        @PathVariable("questionId") String questionId, HttpServletResponse response) throws InvalidQuestionException, IOException {
+        final JsonArrayResponseWriter writer = new JsonArrayResponseWriter(response, objectMapper);
+        answerService.getAllAnswersToQeuestion(questionId, answerDetails -> writer.write(toAnswerDetailsResponse(answerDetails)));
+        writer.finish();
+    }
+
+    /**
+     * This controller is invoked when request pattern matches /answer/all/{questionId} and the client accepts
+     * application/stream+json. The answers are sent as newline delimited JSON, read from the DB a page at a time as the
+     * client consumes them.
+     *
+     * @param userUuid   - uuid of the signed in user
+     * @param questionId
+     * @return stream of the answers
+     * @throws InvalidQuestionException
+     */
+    @RequestMapping(
+            method = RequestMethod.GET,
+            path = "/answer/all/{questionId}",
+            produces = MediaType.APPLICATION_STREAM_JSON_VALUE
+    )
+    public Flux<AnswerDetailsResponse> streamAllAnswersToQuestion(@ApiIgnore @AuthenticatedUser(signedOutMessage = "User is signed out.Sign in first to get the answers") String userUuid,
+                                                                  @PathVariable("questionId") String questionId) throws InvalidQuestionException {
+        return listingStreamService.streamAnswersToQuestion(questionId).map(AnswerController::toAnswerDetailsResponse);
+    }
+
+    /**
+     * This method maps the details of an answer to the answer model returned by the listing endpoint
+     *
+     * @param answerDetails
+     * @return
+     */
+    static AnswerDetailsResponse toAnswerDetailsResponse(final AnswerDetails answerDetails) {
+        AnswerDetailsResponse answerDetailsResponse = new AnswerDetailsResponse();
+        answerDetailsResponse.setAnswerContent(answerDetails.getAnswer());
+        answerDetailsResponse.setId(answerDetails.getUuid());
+        answerDetailsResponse.setQuestionContent(answerDetails.getQuestionContent());
+        return answerDetailsResponse;
     }
 
 }
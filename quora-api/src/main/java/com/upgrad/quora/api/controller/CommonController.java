@@ -1,16 +1,20 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.api.common.AuthenticatedUser;
 import com.upgrad.quora.api.model.UserDetailsResponse;
 import com.upgrad.quora.service.business.CommonBusinessService;
+import com.upgrad.quora.service.cache.UserProfileCache;
 import com.upgrad.quora.service.entity.UserEntity;
-import com.upgrad.quora.service.exception.AuthenticationFailedException;
-import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import springfox.documentation.annotations.ApiIgnore;
 
 @RestController
 @RequestMapping("/")
@@ -19,21 +23,51 @@ public class CommonController {
     @Autowired
     private CommonBusinessService commonBusinessService;
 
+    @Autowired
+    private UserProfileCache userProfileCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * Controller Get method to provide the user details with mapping '/userprofile/{id}'
+     * The rendered profile is cached and sent with a strong ETag; when the If-None-Match header carries the current ETag
+     * 304 is returned without reading the DB or serialising the profile.
      *
-     * @param userUuid      - userid of the user whose details need to be retrieved
-     * @param authorization - authorization header of logged-in user
-     * @return
-     * @throws UserNotFoundException         - throws when user is not present whose user id is provided
-     * @throws AuthenticationFailedException
-     * @throws AuthorizationFailedException
+     * @param userUuid       - userid of the user whose details need to be retrieved
+     * @param signedInUserId - uuid of the logged-in user
+     * @param webRequest
+     * @return JSON response of the user details, or null when 304 has been sent
+     * @throws UserNotFoundException   - throws when user is not present whose user id is provided
+     * @throws JsonProcessingException
      */
     @RequestMapping(method = RequestMethod.GET, path = "/userprofile/{id}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<UserDetailsResponse> getUser(@PathVariable("id") final String userUuid,
-                                                       @RequestHeader("authorization") final String authorization) throws UserNotFoundException, AuthenticationFailedException, AuthorizationFailedException {
-        final UserEntity userEntity = commonBusinessService.getUser(userUuid, authorization);
-        UserDetailsResponse userDetailsResponse = new UserDetailsResponse()
+    public ResponseEntity<byte[]> getUser(@PathVariable("id") final String userUuid,
+                                          @ApiIgnore @AuthenticatedUser(signedOutMessage = "User is signed out.Sign in first to get user details") final String signedInUserId,
+                                          final WebRequest webRequest) throws UserNotFoundException, JsonProcessingException {
+        UserProfileCache.Entry profile = userProfileCache.get(userUuid);
+        if (profile == null) {
+            final long generation = userProfileCache.generation();
+            final UserEntity userEntity = commonBusinessService.getUser(userUuid);
+            profile = userProfileCache.put(userUuid, generation, objectMapper.writeValueAsBytes(toUserDetailsResponse(userEntity)));
+        }
+        if (webRequest.checkNotModified(profile.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .eTag(profile.getEtag())
+                .body(profile.getBody());
+    }
+
+    /**
+     * This method maps a user entity to the profile model returned by /userprofile/{id}
+     *
+     * @param userEntity
+     * @return
+     */
+    static UserDetailsResponse toUserDetailsResponse(final UserEntity userEntity) {
+        return new UserDetailsResponse()
                 .firstName(userEntity.getFirstName())
                 .lastName(userEntity.getLastName())
                 .userName(userEntity.getUserName())
@@ -42,6 +76,5 @@ public class CommonController {
                 .emailAddress(userEntity.getEmail())
                 .dob(userEntity.getDob())
                 .contactNumber(userEntity.getContactNumber());
-        return new ResponseEntity<UserDetailsResponse>(userDetailsResponse, HttpStatus.OK);
     }
 }
@@ -1,9 +1,18 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.api.common.AuthenticatedUser;
+import com.upgrad.quora.api.common.JsonArrayResponseWriter;
 import com.upgrad.quora.api.model.*;
+import com.upgrad.quora.service.business.ListingStreamService;
+import com.upgrad.quora.service.business.QuestionFeedService;
+import com.upgrad.quora.service.business.QuestionSearchService;
 import com.upgrad.quora.service.business.QuestionService;
+import com.upgrad.quora.service.common.KeysetPage;
 import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidCursorException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,78 +20,181 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import springfox.documentation.annotations.ApiIgnore;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/")
 public class QuestionController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    private static final int DEFAULT_SEARCH_RESULTS = 10;
+
+    private static final int DEFAULT_FEED_SIZE = 20;
+
     @Autowired
     private QuestionService questionService;
 
+    @Autowired
+    private QuestionSearchService questionSearchService;
+
+    @Autowired
+    private QuestionFeedService questionFeedService;
+
+    @Autowired
+    private ListingStreamService listingStreamService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
 
     /**
      * This controller is invoked when request pattern matches /question/create and main purpose is to store new questions to the database
      *
      * @param questionRequest - Model of question
-     * @param authorization
+     * @param user            - the signed in user
      * @return - JSON response containing created question id and http status
-     * @throws AuthorizationFailedException
      */
 
     @RequestMapping(method = RequestMethod.POST, path = "/question/create", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<QuestionResponse> createQuestion(final QuestionRequest questionRequest, @RequestHeader("authorization") final String authorization) throws AuthorizationFailedException {
+    public ResponseEntity<QuestionResponse> createQuestion(final QuestionRequest questionRequest,
+                                                           @AuthenticatedUser(signedOutMessage = "User is signed out.Sign in first to post a question") final UserEntity user) {
         final QuestionEntity questionEntity = new QuestionEntity();
-        questionEntity.setUuid(UUID.randomUUID().toString());
         questionEntity.setContent(questionRequest.getContent());
-        final QuestionEntity createdQuestionEntity = questionService.createQuestion(questionEntity, authorization);
+        final QuestionEntity createdQuestionEntity = questionService.createQuestion(questionEntity, user);
         QuestionResponse questionResponse = new QuestionResponse().id(createdQuestionEntity.getUuid()).status("Created");
         return new ResponseEntity<QuestionResponse>(questionResponse, HttpStatus.OK);
     }
 
     /**
-     * This controller is invoked when request pattern matches /question/all and main purpose is to fetch all questions from the database
+     * This controller is invoked when request pattern matches /question/all and main purpose is to fetch all questions from the database.
+     * Without limit and cursor the questions are streamed to the response one at a time, so the memory used does not depend on the
+     * number of questions; they are read a page at a time and no connection is held while a page is written to the client.
+     * When limit or cursor is passed only one page of questions is returned, newest first, and the continuation token of the next
+     * page is sent in the 'next-cursor' response header.
      *
-     * @param authorization
-     * @return JSON response of all the questions array
-     * @throws AuthorizationFailedException
+     * @param userUuid - uuid of the signed in user
+     * @param limit    - page size, optional
+     * @param cursor   - continuation token returned with the previous page, optional
+     * @param response - the question array is streamed to the response one question at a time
+     * @throws InvalidCursorException
+     * @throws IOException
      */
 
     @RequestMapping(method = RequestMethod.GET, path = "/question/all", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<QuestionDetailsResponse> getAllQuestions(@RequestHeader("authorization") final String authorization) throws AuthorizationFailedException {
-        final ArrayList<QuestionDetailsResponse> result = new ArrayList();
-        final List<QuestionEntity> questionEntity = questionService.getAllQuestions(authorization);
-        for (QuestionEntity text : questionEntity) {
-            QuestionDetailsResponse questionDetailsResponse = new QuestionDetailsResponse();
-            result.add(questionDetailsResponse.content(text.getContent()).id(text.getUuid()));
+    public void getAllQuestions(@ApiIgnore @AuthenticatedUser(signedOutMessage = "User is signed out.Sign in first to get all questions") final String userUuid,
+                                @RequestParam(value = "limit", required = false) final Integer limit,
+                                @RequestParam(value = "cursor", required = false) final String cursor,
+                                final HttpServletResponse response) throws InvalidCursorException, IOException {
+        final JsonArrayResponseWriter writer = new JsonArrayResponseWriter(response, objectMapper);
+        if (limit != null || cursor != null) {
+            final KeysetPage<QuestionEntity> page = questionService.getQuestionsPage(cursor, limit == null ? DEFAULT_PAGE_SIZE : limit);
+            if (page.hasNext()) {
+                response.setHeader("next-cursor", page.getNextCursor());
+            }
+            for (QuestionEntity text : page.getItems()) {
+                writer.write(toQuestionDetailsResponse(text));
+            }
+        } else {
+            questionService.getAllQuestions(text -> writer.write(toQuestionDetailsResponse(text)));
         }
-        return new ResponseEntity(result, HttpStatus.OK);
+        writer.finish();
     }
 
     /**
      * This controller is invoked when request pattern matches /question/all/{userId} and main purpose is to fetch all questions posted by
      * a specific user
      *
-     * @param userId        - user ID whose question needs to be fetched
-     * @param authorization
-     * @return JSON response of question array
-     * @throws AuthorizationFailedException
+     * @param userId   - user ID whose question needs to be fetched
+     * @param userUuid - uuid of the signed in user
+     * @param response - the question array is streamed to the response one question at a time
      * @throws UserNotFoundException
+     * @throws IOException
      */
 
     @RequestMapping(method = RequestMethod.GET, path = "/question/all/{userId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<QuestionDetailsResponse> getAllQuestionsByUser(@PathVariable("userId") String userId, @RequestHeader("authorization") final String authorization) throws AuthorizationFailedException, UserNotFoundException {
-        final ArrayList<QuestionDetailsResponse> result = new ArrayList();
-        final List<QuestionEntity> questionEntity = questionService.getAllQuestionsByUser(userId, authorization);
-        for (QuestionEntity text : questionEntity) {
-            QuestionDetailsResponse questionDetailsResponse = new QuestionDetailsResponse();
-            result.add(questionDetailsResponse.content(text.getContent()).id(text.getUuid()));
+    public void getAllQuestionsByUser(@PathVariable("userId") String userId,
+                                      @ApiIgnore @AuthenticatedUser(signedOutMessage = "User is signed out.Sign in first to get all questions posted by a specific user") final String userUuid,
+                                      final HttpServletResponse response) throws UserNotFoundException, IOException {
+        final JsonArrayResponseWriter writer = new JsonArrayResponseWriter(response, objectMapper);
+        questionService.getAllQuestionsByUser(userId, text -> writer.write(toQuestionDetailsResponse(text)));
+        writer.finish();
+    }
+
+    /**
+     * This controller is invoked when request pattern matches /question/all and the client accepts application/stream+json.
+     * The questions are sent newest first as newline delimited JSON, read from the DB a page at a time as the client consumes them.
+     *
+     * @param userUuid - uuid of the signed in user
+     * @return stream of all the questions
+     */
+
+    @RequestMapping(method = RequestMethod.GET, path = "/question/all", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public Flux<QuestionDetailsResponse> streamAllQuestions(@ApiIgnore @AuthenticatedUser(signedOutMessage = "User is signed out.Sign in first to get all questions") final String userUuid) {
+        return listingStreamService.streamQuestions().map(QuestionController::toQuestionDetailsResponse);
+    }
+
+    /**
+     * This controller is invoked when request pattern matches /question/all/{userId} and the client accepts
+     * application/stream+json. The questions of the user are sent newest first as newline delimited JSON.
+     *
+     * @param userId   - user ID whose question needs to be fetched
+     * @param userUuid - uuid of the signed in user
+     * @return stream of the questions posted by the user
+     * @throws UserNotFoundException
+     */
+
+    @RequestMapping(method = RequestMethod.GET, path = "/question/all/{userId}", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public Flux<QuestionDetailsResponse> streamAllQuestionsByUser(@PathVariable("userId") String userId,
+                                                                  @ApiIgnore @AuthenticatedUser(signedOutMessage = "User is signed out.Sign in first to get all questions posted by a specific user") final String userUuid) throws UserNotFoundException {
+        return listingStreamService.streamQuestionsByUser(userId).map(QuestionController::toQuestionDetailsResponse);
+    }
+
+    /**
+     * This controller is invoked when request pattern matches /question/search and main purpose is to find the questions whose
+     * content, or the text of whose answers, matches the query. The best matching questions are returned first.
+     *
+     * @param userUuid - uuid of the signed in user
+     * @param q        - words to search for
+     * @param limit    - maximum number of questions returned, optional
+     * @return JSON response of the matching questions array
+     */
+
+    @RequestMapping(method = RequestMethod.GET, path = "/question/search", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<List<QuestionDetailsResponse>> searchQuestions(@ApiIgnore @AuthenticatedUser(signedOutMessage = "User is signed out.Sign in first to search the questions") final String userUuid,
+                                                                         @RequestParam("q") final String q,
+                                                                         @RequestParam(value = "limit", required = false) final Integer limit) {
+        final List<QuestionDetailsResponse> result = new ArrayList<>();
+        for (QuestionEntity questionEntity : questionSearchService.search(q, limit == null ? DEFAULT_SEARCH_RESULTS : limit)) {
+            result.add(toQuestionDetailsResponse(questionEntity));
         }
-        return new ResponseEntity(result, HttpStatus.OK);
+        return new ResponseEntity<List<QuestionDetailsResponse>>(result, HttpStatus.OK);
+    }
+
+    /**
+     * This controller is invoked when request pattern matches /question/feed and main purpose is to fetch the most active questions,
+     * ranked by their number of answers and how recently they were answered. The most active questions are returned first.
+     *
+     * @param userUuid - uuid of the signed in user
+     * @param limit    - maximum number of questions returned, optional
+     * @return JSON response of the ranked questions array
+     */
+
+    @RequestMapping(method = RequestMethod.GET, path = "/question/feed", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<List<QuestionDetailsResponse>> getQuestionFeed(@ApiIgnore @AuthenticatedUser(signedOutMessage = "User is signed out.Sign in first to get the question feed") final String userUuid,
+                                                                         @RequestParam(value = "limit", required = false) final Integer limit) {
+        final List<QuestionDetailsResponse> result = new ArrayList<>();
+        for (QuestionEntity questionEntity : questionFeedService.getFeed(limit == null ? DEFAULT_FEED_SIZE : limit)) {
+            result.add(toQuestionDetailsResponse(questionEntity));
+        }
+        return new ResponseEntity<List<QuestionDetailsResponse>>(result, HttpStatus.OK);
     }
 
     /**
@@ -90,7 +202,7 @@ public class QuestionController {
      *
      * @param questionId
      * @param questionEditRequest
-     * @param authorization
+     * @param user                - the signed in user
      * @return updated status of edited question
      * @throws AuthorizationFailedException
      * @throws InvalidQuestionException
@@ -98,8 +210,9 @@ public class QuestionController {
 
 
     @RequestMapping(method = RequestMethod.PUT, path = "/question/edit/{questionId}", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<QuestionEditResponse> editQuestionContent(@PathVariable("questionId") String questionId, QuestionEditRequest questionEditRequest, @RequestHeader("authorization") final String authorization) throws AuthorizationFailedException, InvalidQuestionException {
-        QuestionEntity questionEntity = questionService.editQuestionContent(questionEditRequest.getContent(), questionId, authorization);
+    public ResponseEntity<QuestionEditResponse> editQuestionContent(@PathVariable("questionId") String questionId, QuestionEditRequest questionEditRequest,
+                                                                    @AuthenticatedUser(signedOutMessage = "User is signed out.Sign in first to edit the question") final UserEntity user) throws AuthorizationFailedException, InvalidQuestionException {
+        QuestionEntity questionEntity = questionService.editQuestionContent(questionEditRequest.getContent(), questionId, user);
         QuestionEditResponse questionEditResponse = new QuestionEditResponse().id(questionEntity.getUuid()).status("QUESTION EDITED");
         return new ResponseEntity<QuestionEditResponse>(questionEditResponse, HttpStatus.OK);
     }
@@ -108,20 +221,33 @@ public class QuestionController {
      * This controller is invoked when request pattern matches /question/delete/{questionId} and this allows user to delete existing question
      *
      * @param questionId
-     * @param authorization
+     * @param user       - the signed in user
      * @return
      * @throws AuthorizationFailedException
      * @throws InvalidQuestionException
      */
 
     @RequestMapping(method = RequestMethod.DELETE, path = "/question/delete/{questionId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<QuestionDeleteResponse> deleteQuestion(@PathVariable("questionId") String questionId, @RequestHeader("authorization") final String authorization) throws AuthorizationFailedException, InvalidQuestionException {
+    public ResponseEntity<QuestionDeleteResponse> deleteQuestion(@PathVariable("questionId") String questionId,
+                                                                 @AuthenticatedUser(signedOutMessage = "User is signed out.Sign in first to delete a question") final UserEntity user) throws AuthorizationFailedException, InvalidQuestionException {
 
-        QuestionEntity questionEntity = questionService.deleteQuestion(questionId, authorization);
+        QuestionEntity questionEntity = questionService.deleteQuestion(questionId, user);
         QuestionDeleteResponse questionDeleteResponse = new QuestionDeleteResponse();
         questionDeleteResponse.setId(questionEntity.getUuid());
         questionDeleteResponse.setStatus("QUESTION DELETED");
         return new ResponseEntity<QuestionDeleteResponse>(questionDeleteResponse, HttpStatus.OK);
     }
 
+    /**
+     * This method maps a question entity to the question model returned by the listing endpoints
+     *
+     * @param questionEntity
+     * @return
+     */
+    static QuestionDetailsResponse toQuestionDetailsResponse(final QuestionEntity questionEntity) {
+        return new QuestionDetailsResponse().content(questionEntity.getContent()).id(questionEntity.getUuid())
+                .answerCount(questionEntity.getAnswerCount())
+                .lastAnswerAt(questionEntity.getLastAnswerAt() == null ? null : questionEntity.getLastAnswerAt().toOffsetDateTime());
+    }
+
 }
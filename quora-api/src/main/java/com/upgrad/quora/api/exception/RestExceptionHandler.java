@@ -1,64 +1,145 @@
 package com.upgrad.quora.api.exception;
 
 import com.upgrad.quora.api.model.ErrorResponse;
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.UnexpectedException;
 import com.upgrad.quora.service.exception.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @ControllerAdvice
 public class RestExceptionHandler {
 
+    static final String ERRORS_METRIC = "quora.api.errors";
+
+    //the messages of the error codes come from a fixed set, the bound only guards against a message built from request data
+    private static final int MAX_PREBUILT_RESPONSES = 1024;
+
+    //error code -> error message -> response, built on first use
+    private final ConcurrentMap<String, ConcurrentMap<String, PrebuiltResponse>> prebuiltResponses = new ConcurrentHashMap<>();
+
+    private final AtomicInteger prebuiltResponseCount = new AtomicInteger();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @ExceptionHandler(AuthenticationFailedException.class)
     public ResponseEntity<ErrorResponse> authenticationFailedException(AuthenticationFailedException exe, WebRequest request) {
-        return new ResponseEntity<ErrorResponse>(
-                new ErrorResponse().code(exe.getCode()).message(exe.getErrorMessage()), HttpStatus.FORBIDDEN
-        );
+        return errorResponse(exe, HttpStatus.FORBIDDEN);
     }
 
     @ExceptionHandler(SignUpRestrictedException.class)
     public ResponseEntity<ErrorResponse> signUpRestrictedException(SignUpRestrictedException exe, WebRequest request) {
-        return new ResponseEntity<ErrorResponse>(
-                new ErrorResponse().code(exe.getCode()).message(exe.getErrorMessage()), HttpStatus.CONFLICT
-        );
+        return errorResponse(exe, HttpStatus.CONFLICT);
     }
 
     @ExceptionHandler(SignOutRestrictedException.class)
     public ResponseEntity<ErrorResponse> signOutRestrictedException(SignOutRestrictedException exe, WebRequest request) {
-        return new ResponseEntity<ErrorResponse>(
-                new ErrorResponse().code(exe.getCode()).message(exe.getErrorMessage()), HttpStatus.UNAUTHORIZED
-        );
+        return errorResponse(exe, HttpStatus.UNAUTHORIZED);
     }
 
     @ExceptionHandler(UserNotFoundException.class)
     public ResponseEntity<ErrorResponse> resourceNotFoundException(UserNotFoundException exe, WebRequest request) {
-        return new ResponseEntity<ErrorResponse>(
-                new ErrorResponse().code(exe.getCode()).message(exe.getErrorMessage()), HttpStatus.NOT_FOUND
-        );
+        return errorResponse(exe, HttpStatus.NOT_FOUND);
     }
 
     @ExceptionHandler(AuthorizationFailedException.class)
     public ResponseEntity<ErrorResponse> unauthorizedException(AuthorizationFailedException exe, WebRequest request) {
-        return new ResponseEntity<ErrorResponse>(
-                new ErrorResponse().code(exe.getCode()).message(exe.getErrorMessage()), HttpStatus.FORBIDDEN
-        );
+        return errorResponse(exe, HttpStatus.FORBIDDEN);
     }
 
     @ExceptionHandler(AnswerNotFoundException.class)
     public ResponseEntity<ErrorResponse> answerNotFoundException(AnswerNotFoundException exe, WebRequest request) {
-        return new ResponseEntity<ErrorResponse>(
-                new ErrorResponse().code(exe.getCode()).message(exe.getErrorMessage()), HttpStatus.NOT_FOUND
-        );
+        return errorResponse(exe, HttpStatus.NOT_FOUND);
     }
 
     @ExceptionHandler(InvalidQuestionException.class)
     public ResponseEntity<ErrorResponse> answerNotFoundException(InvalidQuestionException exe, WebRequest request) {
-        return new ResponseEntity<ErrorResponse>(
-                new ErrorResponse().code(exe.getCode()).message(exe.getErrorMessage()), HttpStatus.NOT_FOUND
-        );
+        return errorResponse(exe, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(UnexpectedException.class)
+    public ResponseEntity<ErrorResponse> unexpectedException(UnexpectedException exe, WebRequest request) {
+        if (exe.getErrorCode() == GenericErrorCode.GEN_002) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.add(HttpHeaders.RETRY_AFTER, "1");
+            return errorResponse(exe.getErrorCode().getCode(), exe.getMessage(), headers, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return errorResponse(exe.getErrorCode().getCode(), exe.getMessage(), null, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @ExceptionHandler(InvalidAnswerBatchException.class)
+    public ResponseEntity<ErrorResponse> invalidAnswerBatchException(InvalidAnswerBatchException exe, WebRequest request) {
+        return errorResponse(exe, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ErrorResponse> invalidCursorException(InvalidCursorException exe, WebRequest request) {
+        return errorResponse(exe, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * This method returns the error response for the exception and counts it per error code. The response, whose body
+     * only depends on the error code and message, and its counter are built once per code and message and then reused.
+     *
+     * @param exe
+     * @param status - status of the error code
+     * @return
+     */
+    private ResponseEntity<ErrorResponse> errorResponse(final QuoraException exe, final HttpStatus status) {
+        final ConcurrentMap<String, PrebuiltResponse> byMessage = prebuiltResponses.computeIfAbsent(exe.getCode(), code -> new ConcurrentHashMap<>());
+        PrebuiltResponse prebuilt = byMessage.get(exe.getErrorMessage());
+        if (prebuilt == null) {
+            prebuilt = new PrebuiltResponse(errorCounter(exe.getCode(), status),
+                    new ResponseEntity<ErrorResponse>(new ErrorResponse().code(exe.getCode()).message(exe.getErrorMessage()), status));
+            if (prebuiltResponseCount.get() < MAX_PREBUILT_RESPONSES && byMessage.putIfAbsent(exe.getErrorMessage(), prebuilt) == null) {
+                prebuiltResponseCount.incrementAndGet();
+            }
+        }
+        prebuilt.counter.increment();
+        return prebuilt.response;
+    }
+
+    /**
+     * This method builds the error response and counts it per error code
+     *
+     * @param code    - error code, e.g. ATHR-001
+     * @param message
+     * @param headers - additional response headers, may be null
+     * @param status
+     * @return
+     */
+    private ResponseEntity<ErrorResponse> errorResponse(final String code, final String message, final HttpHeaders headers, final HttpStatus status) {
+        errorCounter(code, status).increment();
+        return new ResponseEntity<ErrorResponse>(new ErrorResponse().code(code).message(message), headers, status);
+    }
+
+    private Counter errorCounter(final String code, final HttpStatus status) {
+        return meterRegistry.counter(ERRORS_METRIC, "code", code, "status", Integer.toString(status.value()));
+    }
+
+    //shared by all requests failing with the same code and message, neither is modified once built
+    private static final class PrebuiltResponse {
+
+        private final Counter counter;
+
+        private final ResponseEntity<ErrorResponse> response;
+
+        private PrebuiltResponse(final Counter counter, final ResponseEntity<ErrorResponse> response) {
+            this.counter = counter;
+            this.response = response;
+        }
     }
 
 }
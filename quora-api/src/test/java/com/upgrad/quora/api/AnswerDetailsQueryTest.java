@@ -0,0 +1,47 @@
+package com.upgrad.quora.api;
+
+import com.upgrad.quora.service.dao.AnswerDao;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.dto.AnswerDetails;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class AnswerDetailsQueryTest {
+
+    @Autowired
+    private AnswerDao answerDao;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    //This test case passes when a page of the answers of a question is read together with the question content in exactly one SQL statement.
+    @Test
+    public void answerDetailsAreFetchedWithOneStatement() {
+        final QuestionEntity questionEntity = questionDao.getQuestionById("database_question_uuid");
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        final List<AnswerDetails> answers = answerDao.getAnswerDetailsToQuestionPage(questionEntity, null, 100);
+
+        assertFalse(answers.isEmpty());
+        assertEquals("database_question_content", answers.get(0).getQuestionContent());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,91 @@
+package com.upgrad.quora.api;
+
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.metrics.DaoMetricsAspect;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+/**
+ * Calls a QuestionDao backed by a mocked EntityManager through the DaoMetricsAspect, and reads the meters from a
+ * SimpleMeterRegistry, which counts the meters registered.
+ */
+public class DaoMetricsAspectTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private final AtomicInteger registrations = new AtomicInteger();
+
+    private EntityManager entityManager;
+
+    private QuestionDao questionDao;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public Meter.Id map(final Meter.Id id) {
+                registrations.incrementAndGet();
+                return id;
+            }
+        });
+        final DaoMetricsAspect aspect = new DaoMetricsAspect();
+        ReflectionTestUtils.setField(aspect, "meterRegistry", meterRegistry);
+
+        entityManager = Mockito.mock(EntityManager.class, Mockito.RETURNS_DEEP_STUBS);
+        final QuestionDao target = new QuestionDao();
+        ReflectionTestUtils.setField(target, "entityManager", entityManager);
+        final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(aspect);
+        questionDao = proxyFactory.getProxy();
+    }
+
+    //This test case passes when every call is timed and its rows counted, while the meters are only registered on the first call.
+    @Test
+    public void registersMetersOnce() {
+        when(entityManager.createNamedQuery("maxQuestionId", Integer.class).getSingleResult()).thenReturn(1024);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Integer.valueOf(1024), questionDao.getMaxQuestionId());
+        }
+
+        assertEquals(3, meterRegistry.find("quora.dao").tags("dao", "QuestionDao", "method", "getMaxQuestionId", "exception", "none").timer().count());
+        assertEquals(3, meterRegistry.find("quora.dao.rows").tags("dao", "QuestionDao", "method", "getMaxQuestionId").summary().count());
+        assertEquals(3.0, meterRegistry.find("quora.dao.rows").tags("dao", "QuestionDao", "method", "getMaxQuestionId").summary().totalAmount(), 0);
+        assertEquals(2, registrations.get());
+    }
+
+    //This test case passes when a failed call is timed under the name of its exception, and no rows are counted for it.
+    @Test
+    public void timesFailedCallByException() {
+        when(entityManager.createNamedQuery("maxQuestionId", Integer.class).getSingleResult()).thenThrow(new PersistenceException("connection lost"));
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                questionDao.getMaxQuestionId();
+                fail();
+            } catch (PersistenceException e) {
+                assertEquals("connection lost", e.getMessage());
+            }
+        }
+
+        assertEquals(2, meterRegistry.find("quora.dao").tags("method", "getMaxQuestionId", "exception", "PersistenceException").timer().count());
+        assertEquals(0, meterRegistry.find("quora.dao.rows").meters().size());
+        assertEquals(1, registrations.get());
+    }
+}
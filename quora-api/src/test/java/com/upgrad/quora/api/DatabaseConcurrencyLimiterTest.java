@@ -0,0 +1,77 @@
+package com.upgrad.quora.api;
+
+import com.upgrad.quora.service.concurrency.DatabaseConcurrencyLimiter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.concurrent.Semaphore;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs requests against a limiter allowing a single transaction, whose permit is held by the test the way a long running
+ * transaction of another request would hold it.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"quora.db.concurrency.max-concurrent=1", "quora.db.concurrency.acquire-timeout-ms=50"})
+@AutoConfigureMockMvc
+public class DatabaseConcurrencyLimiterTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private DatabaseConcurrencyLimiter databaseConcurrencyLimiter;
+
+    //This test case passes when a request which cannot start a transaction within the acquire timeout fails with GEN-002 and 503, and the next request succeeds once the permit is free.
+    @Test
+    public void rejectsRequestWhenNoTransactionCanStart() throws Exception {
+        final Semaphore permits = (Semaphore) ReflectionTestUtils.getField(databaseConcurrencyLimiter, "permits");
+        final long rejected = databaseConcurrencyLimiter.getRejectedCount();
+        assertEquals(1, databaseConcurrencyLimiter.getLimit());
+
+        permits.acquire();
+        try {
+            assertEquals(1, databaseConcurrencyLimiter.getInUse());
+            mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.RETRY_AFTER, "1"))
+                    .andExpect(MockMvcResultMatchers.jsonPath("code").value("GEN-002"));
+            assertEquals(rejected + 1, databaseConcurrencyLimiter.getRejectedCount());
+        } finally {
+            permits.release();
+        }
+
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        assertEquals(0, databaseConcurrencyLimiter.getInUse());
+        assertEquals(rejected + 1, databaseConcurrencyLimiter.getRejectedCount());
+    }
+
+    //This test case passes when, without a configured limit, there is one permit per connection of every pool.
+    @Test
+    public void limitCoversEveryPool() {
+        assertEquals(10, limit("", new String[0]));
+        assertEquals(20, limit("jdbc:postgresql://replica:5432/quora", new String[0]));
+        assertEquals(30, limit("", new String[]{"jdbc:postgresql://shard0:5432/quora", "jdbc:postgresql://shard1:5432/quora", "jdbc:postgresql://shard2:5432/quora"}));
+    }
+
+    private static int limit(final String replicaUrl, final String[] shardUrls) {
+        final DatabaseConcurrencyLimiter limiter = new DatabaseConcurrencyLimiter();
+        ReflectionTestUtils.setField(limiter, "poolSize", 10);
+        ReflectionTestUtils.setField(limiter, "replicaUrl", replicaUrl);
+        ReflectionTestUtils.setField(limiter, "shardUrls", shardUrls);
+        limiter.init();
+        return limiter.getLimit();
+    }
+}
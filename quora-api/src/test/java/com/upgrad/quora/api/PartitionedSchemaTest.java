@@ -0,0 +1,105 @@
+package com.upgrad.quora.api;
+
+import com.upgrad.quora.service.business.AnswerService;
+import com.upgrad.quora.service.business.QuestionService;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs against a database set up with the setup-partitioned profile of quora-db, see quora_partitioned.sql, and is
+ * skipped on the plain layout of quora.sql. Counts the partitions in the plans of the statements the DAOs run, read with
+ * EXPLAIN, which does not run them.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class PartitionedSchemaTest {
+
+    private static final Pattern PARTITION = Pattern.compile(" on ((?:question|answer)_(?:\\d+|default))\\b");
+
+    @Autowired
+    private QuestionService questionService;
+
+    @Autowired
+    private AnswerService answerService;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UserEntity user;
+
+    private QuestionEntity question;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("QUESTION is not partitioned", "p".equals(jdbcTemplate.queryForObject("select relkind from pg_class where relname = 'question'", String.class)));
+        user = userDao.getUser("database_uuid1");
+        final QuestionEntity questionEntity = new QuestionEntity();
+        questionEntity.setContent("partitioned question");
+        question = questionService.createQuestion(questionEntity, user);
+    }
+
+    //This test case passes when the answers of a question are read from the single ANSWER partition holding them.
+    @Test
+    public void answersOfQuestionReadOnePartition() {
+        assertEquals(1, partitions("explain select a.id from answer a where a.question_id = " + question.getId() + " order by a.id").size());
+    }
+
+    //This test case passes when a QUESTION write by identifier, which has no date, reads every QUESTION partition.
+    @Test
+    public void questionWriteByIdReadsEveryPartition() {
+        final int questionPartitions = jdbcTemplate.queryForObject("select count(*) from pg_inherits where inhparent = 'question'::regclass", Integer.class);
+
+        assertEquals(questionPartitions, partitions("explain update question set answer_count = answer_count + 1 where id = " + question.getId()).size());
+        assertEquals(questionPartitions, partitions("explain select id from question where id = " + question.getId() + " for update").size());
+    }
+
+    //This test case passes when Hibernate's updates and delete by identifier reach the row in its partition, and the triggers keep the answers and the uuid tables in step.
+    @Test
+    public void questionLifecycleOnPartitionedTables() throws Exception {
+        final AnswerEntity answerEntity = new AnswerEntity();
+        answerEntity.setAnswer("partitioned answer");
+        answerService.createAnswer(answerEntity, user, question.getUuid());
+        questionService.editQuestionContent("edited partitioned question", question.getUuid(), user);
+
+        assertEquals("edited partitioned question", jdbcTemplate.queryForObject("select content from question where uuid = ?", String.class, question.getUuid()));
+        assertEquals(1, (int) jdbcTemplate.queryForObject("select answer_count from question where uuid = ?", Integer.class, question.getUuid()));
+
+        questionService.deleteQuestion(question.getUuid(), user);
+
+        assertEquals(0, (int) jdbcTemplate.queryForObject("select count(*) from question where id = ?", Integer.class, question.getId()));
+        assertEquals(0, (int) jdbcTemplate.queryForObject("select count(*) from answer where question_id = ?", Integer.class, question.getId()));
+        assertEquals(0, (int) jdbcTemplate.queryForObject("select count(*) from question_uuid where uuid = ?", Integer.class, question.getUuid()));
+        assertEquals(0, (int) jdbcTemplate.queryForObject("select count(*) from answer_uuid where question_id = ?", Integer.class, question.getId()));
+    }
+
+    private Set<String> partitions(final String explain) {
+        final Set<String> partitions = new TreeSet<>();
+        for (String line : jdbcTemplate.queryForList(explain, String.class)) {
+            final Matcher matcher = PARTITION.matcher(line);
+            while (matcher.find()) {
+                partitions.add(matcher.group(1));
+            }
+        }
+        return partitions;
+    }
+}
@@ -0,0 +1,103 @@
+package com.upgrad.quora.api;
+
+import com.upgrad.quora.service.search.QuestionSearchIndex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Ranks questions held in a QuestionSearchIndex, which is updated the way the question and answer services do.
+ */
+public class QuestionSearchIndexTest {
+
+    private QuestionSearchIndex questionSearchIndex;
+
+    @Before
+    public void setUp() {
+        questionSearchIndex = new QuestionSearchIndex();
+        questionSearchIndex.indexQuestion("q1", "How do I tune the connection pool?");
+        questionSearchIndex.indexQuestion("q2", "Which pool size suits a pool of virtual threads?");
+        questionSearchIndex.indexQuestion("q3", "What does a garbage collector do?");
+        questionSearchIndex.indexAnswer("q3", "a1", "It frees memory, e.g. of a connection pool which was closed");
+    }
+
+    //This test case passes when the question using the query terms most often, relative to its length, ranks first, and a question matching only in an answer is found too.
+    @Test
+    public void ranksBestMatchFirst() {
+        assertEquals(Arrays.asList("q2", "q1", "q3"), questionSearchIndex.search("pool", 10));
+        assertEquals(Arrays.asList("q1", "q3", "q2"), questionSearchIndex.search("Connection POOL", 10));
+        assertEquals(Collections.singletonList("q3"), questionSearchIndex.search("memory", 10));
+        assertTrue(questionSearchIndex.search("unknown", 10).isEmpty());
+        assertTrue(questionSearchIndex.search(" ?! ", 10).isEmpty());
+    }
+
+    //This test case passes when at most limit questions are returned, the best ones.
+    @Test
+    public void returnsAtMostLimitQuestions() {
+        assertEquals(Collections.singletonList("q2"), questionSearchIndex.search("pool", 1));
+        assertEquals(Arrays.asList("q2", "q1"), questionSearchIndex.search("pool", 2));
+        assertTrue(questionSearchIndex.search("pool", 0).isEmpty());
+    }
+
+    //This test case passes when edited questions and answers are only found by their new words.
+    @Test
+    public void editReplacesTerms() {
+        questionSearchIndex.indexQuestion("q1", "How do I size the thread pool?");
+        questionSearchIndex.indexAnswer("q3", "a1", "It frees memory of unreachable objects");
+
+        assertTrue(questionSearchIndex.search("connection", 10).isEmpty());
+        assertTrue(questionSearchIndex.search("closed", 10).isEmpty());
+        assertEquals(Arrays.asList("q2", "q1"), questionSearchIndex.search("pool", 10));
+        assertEquals(Collections.singletonList("q3"), questionSearchIndex.search("unreachable", 10));
+        assertEquals(Collections.singletonList("q1"), questionSearchIndex.search("thread", 10));
+        assertEquals(3, questionSearchIndex.size());
+    }
+
+    //This test case passes when deleted questions and answers are no longer found.
+    @Test
+    public void deleteRemovesTerms() {
+        questionSearchIndex.removeAnswer("q3", "a1");
+        assertTrue(questionSearchIndex.search("memory", 10).isEmpty());
+        assertEquals(Collections.singletonList("q3"), questionSearchIndex.search("garbage", 10));
+
+        questionSearchIndex.removeQuestion("q2");
+        assertEquals(Collections.singletonList("q1"), questionSearchIndex.search("pool", 10));
+        assertEquals(2, questionSearchIndex.size());
+
+        questionSearchIndex.removeAnswer("q1", "no_such_answer");
+        questionSearchIndex.removeQuestion("no_such_question");
+        assertEquals(2, questionSearchIndex.size());
+    }
+
+    //This test case passes when an index updated answer by answer ranks exactly like an index built from the final texts.
+    @Test
+    public void updatesRankLikeRebuild() {
+        for (int i = 0; i < 50; i++) {
+            questionSearchIndex.indexAnswer("q" + (1 + i % 3), "b" + i, "pool answer number " + i + (i % 2 == 0 ? " tuning" : ""));
+        }
+        for (int i = 0; i < 50; i += 3) {
+            questionSearchIndex.removeAnswer("q" + (1 + i % 3), "b" + i);
+        }
+        questionSearchIndex.indexQuestion("q2", "Which pool size suits virtual threads?");
+
+        final QuestionSearchIndex rebuilt = new QuestionSearchIndex();
+        rebuilt.indexQuestion("q1", "How do I tune the connection pool?");
+        rebuilt.indexQuestion("q2", "Which pool size suits virtual threads?");
+        rebuilt.indexQuestion("q3", "What does a garbage collector do?");
+        rebuilt.indexAnswer("q3", "a1", "It frees memory, e.g. of a connection pool which was closed");
+        for (int i = 0; i < 50; i++) {
+            if (i % 3 != 0) {
+                rebuilt.indexAnswer("q" + (1 + i % 3), "b" + i, "pool answer number " + i + (i % 2 == 0 ? " tuning" : ""));
+            }
+        }
+
+        for (String query : new String[]{"pool", "tuning", "answer 7", "connection memory", "virtual threads pool"}) {
+            assertEquals(query, rebuilt.search(query, 10), questionSearchIndex.search(query, 10));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.upgrad.quora.api;
+
+import com.upgrad.quora.service.datasource.ReadWriteRoutingDataSource;
+import com.upgrad.quora.service.datasource.ReplicaLagMonitor;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Routes transactions between two in-memory H2 databases standing in for the primary and the replica. Each database
+ * knows its own name, and the replica reports the lag stored in its REPLICATION_LAG table.
+ */
+public class ReadReplicaRoutingTest {
+
+    private JdbcTemplate replica;
+
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readWrite;
+
+    private TransactionTemplate readOnly;
+
+    @Before
+    public void setUp() {
+        final DataSource primaryDataSource = database("primary");
+        final DataSource replicaDataSource = database("replica");
+        replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("create table REPLICATION_LAG(lag_ms bigint)");
+        replica.update("insert into REPLICATION_LAG values (0)");
+        replicaLagMonitor = new ReplicaLagMonitor(replicaDataSource, "select lag_ms from REPLICATION_LAG", 1000);
+        replicaLagMonitor.probe();
+
+        routingDataSource = new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, replicaLagMonitor);
+        final DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly.setReadOnly(true);
+    }
+
+    //This test case passes when the connection of a read-only transaction is taken from the replica.
+    @Test
+    public void readOnlyTransactionReadsFromReplica() {
+        assertEquals("replica", readOnly.execute(status -> node()));
+        assertEquals(1, routingDataSource.getReplicaConnections());
+    }
+
+    //This test case passes when the connections of read-write transactions and of statements outside of a transaction are taken from the primary.
+    @Test
+    public void writesGoToPrimary() {
+        assertEquals("primary", readWrite.execute(status -> node()));
+        assertEquals("primary", node());
+        assertEquals(0, routingDataSource.getReplicaConnections());
+    }
+
+    //This test case passes when read-only transactions fall back to the primary while the replica lags by more than the allowed lag, and return to the replica once it has caught up.
+    @Test
+    public void readsFallBackToPrimaryWhileReplicaLags() {
+        replica.update("update REPLICATION_LAG set lag_ms = 5000");
+        replicaLagMonitor.probe();
+        assertFalse(replicaLagMonitor.isReplicaUsable());
+        assertEquals("primary", readOnly.execute(status -> node()));
+        assertEquals(1, routingDataSource.getFallbackConnections());
+
+        replica.update("update REPLICATION_LAG set lag_ms = 10");
+        replicaLagMonitor.probe();
+        assertTrue(replicaLagMonitor.isReplicaUsable());
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    //This test case passes when read-only transactions fall back to the primary when the lag of the replica cannot be probed.
+    @Test
+    public void readsFallBackToPrimaryWhenProbeFails() {
+        replica.execute("drop table REPLICATION_LAG");
+        replicaLagMonitor.probe();
+        assertEquals(-1, replicaLagMonitor.getLagMillis());
+        assertEquals("primary", readOnly.execute(status -> node()));
+    }
+
+    //This test case passes when read-only transactions fall back to the primary while the replica reports no lag because it is not replicating.
+    @Test
+    public void readsFallBackToPrimaryWhenReplicaIsDisconnected() {
+        replica.update("update REPLICATION_LAG set lag_ms = null");
+        replicaLagMonitor.probe();
+        assertFalse(replicaLagMonitor.isReplicaUsable());
+        assertEquals(-1, replicaLagMonitor.getLagMillis());
+        assertEquals("primary", readOnly.execute(status -> node()));
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("select name from NODE", String.class);
+    }
+
+    private static DataSource database(final String name) {
+        final DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table NODE(name varchar(20))");
+        jdbcTemplate.update("insert into NODE values (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,105 @@
+package com.upgrad.quora.api;
+
+import com.upgrad.quora.service.business.AnswerService;
+import com.upgrad.quora.service.business.QuestionService;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Looks up a question by uuid before and after it is answered and edited, and counts the statements and the hits of the
+ * second-level cache regions of the questions.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class SecondLevelCacheTest {
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private QuestionService questionService;
+
+    @Autowired
+    private AnswerService answerService;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private UserEntity user;
+
+    private String questionId;
+
+    @Before
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        user = userDao.getUser("database_uuid1");
+        final QuestionEntity questionEntity = new QuestionEntity();
+        questionEntity.setContent("cached question");
+        questionId = questionService.createQuestion(questionEntity, user).getUuid();
+        //puts the question in the cache, should the insert not have done so
+        questionDao.getQuestionById(questionId);
+    }
+
+    //This test case passes when a cached question is found by its uuid without a statement, also after an answer changed its answer count.
+    @Test
+    public void cachedQuestionSurvivesAnswer() throws Exception {
+        statistics.clear();
+        assertEquals("cached question", questionDao.getQuestionById(questionId).getContent());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getNaturalIdCacheHitCount());
+        assertEquals(1, questionRegion().getHitCount());
+
+        final AnswerEntity answerEntity = new AnswerEntity();
+        answerEntity.setAnswer("cached answer");
+        answerService.createAnswer(answerEntity, user, questionId);
+
+        statistics.clear();
+        assertEquals(1, questionDao.getQuestionById(questionId).getAnswerCount());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getNaturalIdCacheHitCount());
+        assertEquals(1, questionRegion().getHitCount());
+    }
+
+    //This test case passes when an edited question is evicted, read again from the DB with its new content, and cached again.
+    @Test
+    public void editedQuestionIsEvicted() throws Exception {
+        questionService.editQuestionContent("edited question", questionId, user);
+
+        statistics.clear();
+        assertEquals("edited question", questionDao.getQuestionById(questionId).getContent());
+        assertEquals(1, statistics.getNaturalIdCacheHitCount());
+        assertEquals(0, questionRegion().getHitCount());
+        assertEquals(1, questionRegion().getMissCount());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        assertEquals("edited question", questionDao.getQuestionById(questionId).getContent());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, questionRegion().getHitCount());
+    }
+
+    private SecondLevelCacheStatistics questionRegion() {
+        return statistics.getSecondLevelCacheStatistics("question");
+    }
+}
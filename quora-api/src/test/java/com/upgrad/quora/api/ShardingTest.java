@@ -0,0 +1,321 @@
+package com.upgrad.quora.api;
+
+import com.upgrad.quora.service.business.AdminBusinessService;
+import com.upgrad.quora.service.business.AnswerService;
+import com.upgrad.quora.service.business.QuestionService;
+import com.upgrad.quora.service.business.UserBusinessService;
+import com.upgrad.quora.service.business.UserCopyReconciler;
+import com.upgrad.quora.service.common.PageCursor;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.datasource.ShardContext;
+import com.upgrad.quora.service.datasource.ShardResolver;
+import com.upgrad.quora.service.dto.AnswerDetails;
+import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.exception.SignUpRestrictedException;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the application on two in-memory H2 databases standing in for the shards, through the DAOs, the
+ * JpaTransactionManager and the LazyConnectionDataSourceProxy set up by ShardingConfiguration. Each shard is created
+ * with the tables of quora.sql and quora_shard.sql, and ids from disjoint blocks of 50.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "quora.datasource.shard.urls=" + ShardingTest.SHARD_0 + "," + ShardingTest.SHARD_1,
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.url=" + ShardingTest.SHARD_0,
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.minimum-idle=1",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "quora.user.deletion.retry-interval-ms=3600000"
+})
+public class ShardingTest {
+
+    static final String SHARD_0 = "jdbc:h2:mem:quora-sharding-test-0;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    static final String SHARD_1 = "jdbc:h2:mem:quora-sharding-test-1;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    private static final JdbcTemplate[] SHARDS = {shard(SHARD_0), shard(SHARD_1)};
+
+    @Autowired
+    private ShardResolver shardResolver;
+
+    @Autowired
+    private UserBusinessService userBusinessService;
+
+    @Autowired
+    private QuestionService questionService;
+
+    @Autowired
+    private AnswerService answerService;
+
+    @Autowired
+    private AdminBusinessService adminBusinessService;
+
+    @Autowired
+    private UserCopyReconciler userCopyReconciler;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeClass
+    public static void createShards() {
+        for (int shard = 0; shard < SHARDS.length; shard++) {
+            final JdbcTemplate jdbcTemplate = SHARDS[shard];
+            for (String sequence : new String[]{"USERS_ID_SEQ", "USER_AUTH_ID_SEQ", "QUESTION_ID_SEQ", "ANSWER_ID_SEQ"}) {
+                jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence + " START WITH " + (50 * shard + 1) + " INCREMENT BY " + 50 * SHARDS.length);
+            }
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS USERS(id INTEGER NOT NULL, uuid VARCHAR(200) NOT NULL, firstName VARCHAR(30) NOT NULL, lastName VARCHAR(30) NOT NULL, userName VARCHAR(30) UNIQUE NOT NULL, email VARCHAR(50) UNIQUE NOT NULL, password VARCHAR(255) NOT NULL, salt VARCHAR(200) NOT NULL, country VARCHAR(30), aboutMe VARCHAR(50), dob VARCHAR(30), role VARCHAR(30), contactNumber VARCHAR(30), PRIMARY KEY(id))");
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS USER_AUTH(ID BIGINT NOT NULL PRIMARY KEY, uuid VARCHAR(200) NOT NULL, USER_ID INTEGER NOT NULL, ACCESS_TOKEN VARCHAR(500) NOT NULL, EXPIRES_AT TIMESTAMP NOT NULL, LOGIN_AT TIMESTAMP NOT NULL, LOGOUT_AT TIMESTAMP NULL, FOREIGN KEY(USER_ID) REFERENCES USERS(ID) ON DELETE CASCADE)");
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS QUESTION(id INTEGER NOT NULL, uuid VARCHAR(200) NOT NULL, content VARCHAR(500) NOT NULL, date TIMESTAMP NOT NULL, user_id INTEGER NOT NULL, answer_count INTEGER NOT NULL DEFAULT 0, last_answer_at TIMESTAMP, PRIMARY KEY(id), FOREIGN KEY(user_id) REFERENCES USERS(id) ON DELETE CASCADE)");
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS ANSWER(id INTEGER NOT NULL, uuid VARCHAR(200) NOT NULL, ans VARCHAR(255) NOT NULL, date TIMESTAMP NOT NULL, user_id INTEGER NOT NULL, question_id INTEGER NOT NULL, PRIMARY KEY(id), FOREIGN KEY(user_id) REFERENCES USERS(id) ON DELETE CASCADE, FOREIGN KEY(question_id) REFERENCES QUESTION(id) ON DELETE CASCADE)");
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS USER_DIRECTORY(lookup_key VARCHAR(260) NOT NULL, user_uuid VARCHAR(200) NOT NULL, PRIMARY KEY(lookup_key))");
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS USER_COPY_DELETION(user_id INTEGER NOT NULL, user_uuid VARCHAR(200) NOT NULL, deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, PRIMARY KEY(user_id))");
+        }
+    }
+
+    //This test case passes when a user answering a question on another shard is copied there with every column, and the answers to the question are listed with their user.
+    @Test
+    public void answerCopiesUserToShardOfQuestion() throws Exception {
+        final UserEntity asker = signup(0);
+        final UserEntity answerer = signup(1);
+        final QuestionEntity question = createQuestion(asker, "Which shard am I on?");
+        assertEquals(0, shardResolver.shardOf(question.getUuid()));
+
+        final AnswerEntity answer = createAnswer(answerer, question, "The first one");
+
+        assertEquals(0, shardResolver.shardOf(answer.getUuid()));
+        final Map<String, Object> copy = SHARDS[0].queryForMap("select * from USERS where uuid = ?", answerer.getUuid());
+        final Map<String, Object> user = SHARDS[1].queryForMap("select * from USERS where uuid = ?", answerer.getUuid());
+        assertEquals(user, copy);
+        assertEquals("nonadmin", copy.get("ROLE"));
+
+        final List<AnswerDetails> answers = new ArrayList<>();
+        answerService.getAllAnswersToQeuestion(question.getUuid(), answers::add);
+        assertEquals(1, answers.size());
+        assertEquals(answer.getUuid(), answers.get(0).getUuid());
+        assertEquals("The first one", answers.get(0).getAnswer());
+        assertEquals("nonadmin", userDao.getUser(answerer.getUuid()).getRole());
+    }
+
+    //This test case passes when the pages of questions merge the questions of both shards newest first, and the next page seeks past the last question of the previous one.
+    @Test
+    public void questionsOfAllShardsAreMergedNewestFirst() throws Exception {
+        final UserEntity onShard0 = signup(0);
+        final UserEntity onShard1 = signup(1);
+        final List<String> created = new ArrayList<>();
+        for (UserEntity user : new UserEntity[]{onShard0, onShard1, onShard0, onShard1}) {
+            created.add(0, createQuestion(user, "Question " + created.size()).getUuid());
+            Thread.sleep(5);
+        }
+
+        final List<QuestionEntity> questions = new ArrayList<>(questionDao.getQuestionsPage(null, 2));
+        final QuestionEntity last = questions.get(questions.size() - 1);
+        questions.addAll(questionDao.getQuestionsPage(new PageCursor(last.getDate(), last.getId()), 2));
+
+        final List<String> uuids = new ArrayList<>();
+        for (QuestionEntity questionEntity : questions) {
+            uuids.add(questionEntity.getUuid());
+        }
+        assertEquals(created, uuids);
+    }
+
+    //This test case passes when a username or email taken on one shard cannot be signed up on the other, and a rejected signup releases the keys it reserved.
+    @Test
+    public void usernamesAndEmailsAreUniqueAcrossShards() throws Exception {
+        final UserEntity taken = signup(0);
+
+        final UserEntity sameUsername = user(1);
+        sameUsername.setUserName(taken.getUserName());
+        assertSignupRejected(sameUsername, "SGR-001");
+
+        final UserEntity sameEmail = user(1);
+        sameEmail.setEmail(taken.getEmail());
+        assertSignupRejected(sameEmail, "SGR-002");
+        assertEquals(0, (int) SHARDS[0].queryForObject("select count(*) from USER_DIRECTORY where user_uuid = ?", Integer.class, sameEmail.getUuid()));
+
+        final UserEntity released = user(1);
+        released.setUserName(sameEmail.getUserName());
+        userBusinessService.signup(released);
+        assertEquals(released.getUuid(), userDao.getUserByUsername(sameEmail.getUserName()).getUuid());
+    }
+
+    //This test case passes when deleting a user also deletes the copies of the user, its answers on the other shard, its username and email, and the record of the deletion.
+    @Test
+    public void deletingUserDeletesCopies() throws Exception {
+        final UserEntity asker = signup(0);
+        final UserEntity answerer = signup(1);
+        final QuestionEntity question = createQuestion(asker, "Who answered this?");
+        createAnswer(answerer, question, "Someone who is deleted");
+
+        adminBusinessService.deleteUser(answerer.getUuid(), admin());
+
+        assertNull(userDao.getUser(answerer.getUuid()));
+        assertNull(userDao.getUserByUsername(answerer.getUserName()));
+        assertEquals(0, (int) SHARDS[0].queryForObject("select count(*) from USERS where uuid = ?", Integer.class, answerer.getUuid()));
+        assertEquals(0, (int) SHARDS[0].queryForObject("select count(*) from ANSWER where question_id = ?", Integer.class, question.getId()));
+        assertEquals(0, (int) SHARDS[0].queryForObject("select count(*) from USER_DIRECTORY where user_uuid = ?", Integer.class, answerer.getUuid()));
+        assertEquals(0, (int) SHARDS[1].queryForObject("select count(*) from USER_COPY_DELETION where user_uuid = ?", Integer.class, answerer.getUuid()));
+        final List<AnswerDetails> answers = new ArrayList<>();
+        answerService.getAllAnswersToQeuestion(question.getUuid(), answers::add);
+        assertTrue(answers.isEmpty());
+        assertEquals(0, questionDao.getQuestionById(question.getUuid()).getAnswerCount());
+    }
+
+    //This test case passes when a deletion interrupted after the user's own shard is finished by the reconciler.
+    @Test
+    public void interruptedDeletionIsFinishedByReconciler() throws Exception {
+        final UserEntity asker = signup(0);
+        final UserEntity answerer = signup(1);
+        createAnswer(answerer, createQuestion(asker, "Who answered this?"), "Someone who is half deleted");
+
+        userDao.deleteUser(answerer);
+
+        assertEquals(1, (int) SHARDS[0].queryForObject("select count(*) from USERS where uuid = ?", Integer.class, answerer.getUuid()));
+        assertEquals(1, (int) SHARDS[1].queryForObject("select count(*) from USER_COPY_DELETION where user_uuid = ?", Integer.class, answerer.getUuid()));
+
+        assertTrue(userCopyReconciler.reconcile() >= 1);
+
+        assertEquals(0, (int) SHARDS[0].queryForObject("select count(*) from USERS where uuid = ?", Integer.class, answerer.getUuid()));
+        assertEquals(0, (int) SHARDS[0].queryForObject("select count(*) from USER_DIRECTORY where user_uuid = ?", Integer.class, answerer.getUuid()));
+        assertEquals(0, (int) SHARDS[1].queryForObject("select count(*) from USER_COPY_DELETION where user_uuid = ?", Integer.class, answerer.getUuid()));
+        assertEquals(0, userCopyReconciler.reconcile());
+    }
+
+    //This test case passes when an access token is found on the shard of the user named by its audience, also when signing out, and a token which is no JWT token is not found.
+    @Test
+    public void accessTokenIsReadFromShardOfItsUser() throws Exception {
+        final UserEntity user = user(1);
+        userBusinessService.signup(user);
+        final String accessToken = userBusinessService.authenticate(user.getUserName(), "secret").getAccessToken();
+        assertEquals(1, (int) SHARDS[1].queryForObject("select count(*) from USER_AUTH where ACCESS_TOKEN = ?", Integer.class, accessToken));
+
+        assertEquals(user.getUuid(), userDao.getUserAuthToken(accessToken).getUser().getUuid());
+        assertTrue(userBusinessService.signout(accessToken).getLogoutAt() != null);
+        assertTrue(userDao.findUserAuthToken(accessToken).getLogoutAt() != null);
+        assertNull(userDao.findUserAuthToken("not a jwt token"));
+    }
+
+    //This test case passes when a transaction which accesses a second shard fails instead of reading the first one.
+    @Test
+    public void transactionCannotSpanShards() throws Exception {
+        final UserEntity onShard0 = signup(0);
+        final UserEntity onShard1 = signup(1);
+        try {
+            new TransactionTemplate(transactionManager).execute(status -> {
+                userDao.getUser(onShard0.getUuid());
+                return userDao.getUser(onShard1.getUuid());
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("The transaction runs on shard 0 and cannot access shard 1", e.getMessage());
+        }
+        assertNull(ShardContext.current());
+    }
+
+    //This test case passes when a lookup spanning the shards fails inside a transaction which runs on a shard, instead of taking a second connection, and succeeds before the shard is selected.
+    @Test
+    public void lookupAcrossShardsNeedsNoConnectionHeld() throws Exception {
+        final UserEntity onShard0 = signup(0);
+        final UserEntity onShard1 = signup(1);
+        try {
+            new TransactionTemplate(transactionManager).execute(status -> {
+                userDao.getUser(onShard0.getUuid());
+                return userDao.getUserByUsername(onShard1.getUserName());
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("The transaction runs on shard 0 and cannot access shard 1", e.getMessage());
+        }
+
+        final UserEntity found = new TransactionTemplate(transactionManager).execute(status -> {
+            final UserEntity byUsername = userDao.getUserByUsername(onShard1.getUserName());
+            userDao.getUser(onShard0.getUuid());
+            return byUsername;
+        });
+        assertEquals(onShard1.getUuid(), found.getUuid());
+        assertNull(ShardContext.current());
+    }
+
+    private UserEntity signup(final int shard) throws SignUpRestrictedException {
+        return userBusinessService.signup(user(shard));
+    }
+
+    private void assertSignupRejected(final UserEntity userEntity, final String code) {
+        try {
+            userBusinessService.signup(userEntity);
+            fail();
+        } catch (SignUpRestrictedException e) {
+            assertEquals(code, e.getCode());
+        }
+    }
+
+    private QuestionEntity createQuestion(final UserEntity user, final String content) {
+        final QuestionEntity questionEntity = new QuestionEntity();
+        questionEntity.setContent(content);
+        return questionService.createQuestion(questionEntity, user);
+    }
+
+    private AnswerEntity createAnswer(final UserEntity user, final QuestionEntity question, final String answer) throws Exception {
+        final AnswerEntity answerEntity = new AnswerEntity();
+        answerEntity.setAnswer(answer);
+        return answerService.createAnswer(answerEntity, user, question.getUuid());
+    }
+
+    private UserEntity user(final int shard) {
+        final String name = UUID.randomUUID().toString().substring(0, 8);
+        final UserEntity userEntity = new UserEntity();
+        userEntity.setUuid(shardResolver.newUuid(shard));
+        userEntity.setFirstName("Shard");
+        userEntity.setLastName("User" + shard);
+        userEntity.setUserName("user-" + name);
+        userEntity.setEmail(name + "@shard" + shard + ".quora");
+        userEntity.setPassword("secret");
+        userEntity.setCountry("India");
+        userEntity.setAboutme("Lives on shard " + shard);
+        userEntity.setDob("01-01-2000");
+        userEntity.setRole("nonadmin");
+        userEntity.setContactNumber("1234567890");
+        return userEntity;
+    }
+
+    private static UserEntity admin() {
+        final UserEntity admin = new UserEntity();
+        admin.setRole("admin");
+        return admin;
+    }
+
+    private static JdbcTemplate shard(final String url) {
+        return new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+    }
+}
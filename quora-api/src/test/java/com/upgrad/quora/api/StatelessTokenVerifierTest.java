@@ -0,0 +1,114 @@
+package com.upgrad.quora.api;
+
+import com.upgrad.quora.service.business.JwtTokenProvider;
+import com.upgrad.quora.service.business.StatelessTokenVerifier;
+import com.upgrad.quora.service.cache.TokenRevocationList;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies access tokens signed with the server key, the way the read endpoints do when
+ * quora.auth.jwt.stateless-verification is enabled.
+ */
+public class StatelessTokenVerifierTest {
+
+    private TokenRevocationList tokenRevocationList;
+
+    private StatelessTokenVerifier statelessTokenVerifier;
+
+    @Before
+    public void setUp() {
+        tokenRevocationList = new TokenRevocationList();
+        statelessTokenVerifier = new StatelessTokenVerifier();
+        ReflectionTestUtils.setField(statelessTokenVerifier, "enabled", true);
+        ReflectionTestUtils.setField(statelessTokenVerifier, "secret", "server-secret");
+        ReflectionTestUtils.setField(statelessTokenVerifier, "tokenRevocationList", tokenRevocationList);
+        statelessTokenVerifier.init();
+    }
+
+    //This test case passes when a token signed with the server key resolves to its user, and tokens signed with another key or altered do not.
+    @Test
+    public void verifiesSignatureOfToken() {
+        final String userUuid = UUID.randomUUID().toString();
+        final String accessToken = token(userUuid, ZonedDateTime.now().plus(JwtTokenProvider.TOKEN_VALIDITY));
+
+        assertEquals(userUuid, statelessTokenVerifier.verify(accessToken));
+        assertNull(statelessTokenVerifier.verify(new JwtTokenProvider("user-password").generateToken(userUuid, ZonedDateTime.now(), ZonedDateTime.now().plusHours(1))));
+        assertNull(statelessTokenVerifier.verify(accessToken.substring(0, accessToken.length() - 2)));
+        assertNull(statelessTokenVerifier.verify(null));
+    }
+
+    //This test case passes when a token past its expiry time is rejected without being revoked.
+    @Test
+    public void rejectsExpiredToken() {
+        final ZonedDateTime issuedAt = ZonedDateTime.now().minusHours(9);
+        final String accessToken = statelessTokenVerifier.getTokenProvider().generateToken(UUID.randomUUID().toString(), issuedAt, issuedAt.plusHours(8));
+
+        assertNull(statelessTokenVerifier.verify(accessToken));
+    }
+
+    //This test case passes when a signed out token is rejected while the other tokens of the user are still accepted.
+    @Test
+    public void rejectsSignedOutToken() {
+        final String userUuid = UUID.randomUUID().toString();
+        final ZonedDateTime expiresAt = ZonedDateTime.now().plusHours(1);
+        final String signedOut = token(userUuid, expiresAt);
+        final String other = token(userUuid, expiresAt);
+
+        statelessTokenVerifier.revoke(signedOut, expiresAt);
+
+        assertNull(statelessTokenVerifier.verify(signedOut));
+        assertEquals(userUuid, statelessTokenVerifier.verify(other));
+    }
+
+    //This test case passes when every token of a deleted user is rejected, and the tokens of other users are not.
+    @Test
+    public void rejectsTokensOfDeletedUser() {
+        final String deletedUuid = UUID.randomUUID().toString();
+        final String otherUuid = UUID.randomUUID().toString();
+        final ZonedDateTime expiresAt = ZonedDateTime.now().plusHours(1);
+        final String first = token(deletedUuid, expiresAt);
+        final String second = token(deletedUuid, expiresAt);
+
+        statelessTokenVerifier.revokeUser(deletedUuid);
+
+        assertNull(statelessTokenVerifier.verify(first));
+        assertNull(statelessTokenVerifier.verify(second));
+        assertEquals(otherUuid, statelessTokenVerifier.verify(token(otherUuid, expiresAt)));
+    }
+
+    //This test case passes when revocations are only kept until the tokens expire, and are forgotten by the purge afterwards.
+    @Test
+    public void purgesExpiredRevocations() throws InterruptedException {
+        tokenRevocationList.revoke("expired", ZonedDateTime.now().minusSeconds(1));
+        assertFalse(tokenRevocationList.isRevoked("expired"));
+
+        tokenRevocationList.revoke("expiring", ZonedDateTime.now().plusNanos(50_000_000));
+        tokenRevocationList.revokeUser("expiring-user", ZonedDateTime.now().plusNanos(50_000_000));
+        tokenRevocationList.revoke("valid", ZonedDateTime.now().plusHours(1));
+        assertTrue(tokenRevocationList.isRevoked("expiring"));
+        assertTrue(tokenRevocationList.isUserRevoked("expiring-user"));
+        assertEquals(3, tokenRevocationList.size());
+
+        Thread.sleep(100);
+        tokenRevocationList.purgeExpired();
+
+        assertFalse(tokenRevocationList.isRevoked("expiring"));
+        assertFalse(tokenRevocationList.isUserRevoked("expiring-user"));
+        assertTrue(tokenRevocationList.isRevoked("valid"));
+        assertEquals(1, tokenRevocationList.size());
+    }
+
+    private String token(final String userUuid, final ZonedDateTime expiresAt) {
+        return statelessTokenVerifier.getTokenProvider().generateToken(userUuid, ZonedDateTime.now(), expiresAt);
+    }
+}
@@ -0,0 +1,84 @@
+package com.upgrad.quora.api;
+
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.metrics.TransactionMetricsAspect;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.when;
+
+/**
+ * Calls a transactional QuestionDao backed by a mocked EntityManager through the TransactionMetricsAspect, the way a
+ * service which is not transactional itself calls it, and reads the timers from a SimpleMeterRegistry.
+ */
+public class TransactionMetricsAspectTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private final AtomicInteger registrations = new AtomicInteger();
+
+    private QuestionDao questionDao;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public Meter.Id map(final Meter.Id id) {
+                registrations.incrementAndGet();
+                return id;
+            }
+        });
+        final TransactionMetricsAspect aspect = new TransactionMetricsAspect();
+        ReflectionTestUtils.setField(aspect, "meterRegistry", meterRegistry);
+
+        final EntityManager entityManager = Mockito.mock(EntityManager.class, Mockito.RETURNS_DEEP_STUBS);
+        when(entityManager.createNamedQuery("maxQuestionId", Integer.class).getSingleResult()).thenReturn(1024);
+        final QuestionDao target = new QuestionDao();
+        ReflectionTestUtils.setField(target, "entityManager", entityManager);
+        final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(aspect);
+        questionDao = proxyFactory.getProxy();
+    }
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    //This test case passes when a transaction started by a DAO is timed with the DAO as service, and its timer is only registered once.
+    @Test
+    public void timesTransactionStartedByDao() {
+        for (int i = 0; i < 3; i++) {
+            questionDao.getMaxQuestionId();
+        }
+
+        assertEquals(3, meterRegistry.find("quora.db.transaction").tags("service", "QuestionDao", "method", "getMaxQuestionId", "exception", "none").timer().count());
+        assertEquals(1, registrations.get());
+    }
+
+    //This test case passes when a DAO call joining the transaction of a service is not timed on its own.
+    @Test
+    public void skipsCallInsideTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        questionDao.getMaxQuestionId();
+
+        assertNull(meterRegistry.find("quora.db.transaction").timer());
+        assertEquals(0, registrations.get());
+    }
+}
@@ -0,0 +1,66 @@
+package com.upgrad.quora.api;
+
+import com.upgrad.quora.api.config.VirtualThreadConfiguration;
+import org.junit.Test;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Applies the virtual thread configuration to a Tomcat factory on the runtime running the tests, which may or may not
+ * have virtual threads.
+ */
+public class VirtualThreadConfigurationTest {
+
+    private static final boolean VIRTUAL_THREADS = Arrays.stream(Executors.class.getMethods())
+            .anyMatch(method -> method.getName().equals("newVirtualThreadPerTaskExecutor"));
+
+    //This test case passes when the connector gets the virtual thread executor on Java 21, and is left on the Tomcat worker pool on older runtimes.
+    @Test
+    public void fallsBackToWorkerPoolWithoutVirtualThreads() throws Exception {
+        final VirtualThreadConfiguration configuration = new VirtualThreadConfiguration();
+        final TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory();
+
+        configuration.virtualThreadExecutorCustomizer().customize(factory);
+
+        if (VIRTUAL_THREADS) {
+            assertNotNull(configuration.getExecutor());
+            assertEquals(1, factory.getTomcatConnectorCustomizers().size());
+        } else {
+            assertNull(configuration.getExecutor());
+            assertTrue(factory.getTomcatConnectorCustomizers().isEmpty());
+        }
+        configuration.shutdown();
+    }
+
+    //This test case passes when closing the configuration waits for the running requests and then refuses new ones.
+    @Test
+    public void shutdownWaitsForRunningRequests() throws Exception {
+        final VirtualThreadConfiguration configuration = new VirtualThreadConfiguration();
+        if (!VIRTUAL_THREADS) {
+            configuration.shutdown();
+            return;
+        }
+        final boolean[] completed = new boolean[1];
+        configuration.getExecutor().execute(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(100);
+                completed[0] = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        configuration.shutdown();
+
+        assertTrue(configuration.getExecutor().isTerminated());
+        assertTrue(completed[0]);
+    }
+}
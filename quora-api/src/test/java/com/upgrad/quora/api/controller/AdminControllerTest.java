@@ -1,15 +1,32 @@
 package com.upgrad.quora.api.controller;
 
+import com.jayway.jsonpath.JsonPath;
+import com.upgrad.quora.service.business.QuestionActivityReconciler;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.feed.QuestionFeed;
+import com.upgrad.quora.service.search.QuestionSearchIndex;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -21,6 +38,21 @@ public class AdminControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+
+    @Autowired
+    private QuestionFeed questionFeed;
+
+    @Autowired
+    private QuestionActivityReconciler questionActivityReconciler;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
 
     //This test case passes when you try to delete the user but the JWT token entered does not exist in the database.
     @Test
@@ -47,6 +79,95 @@ public class AdminControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
     }
 
+    //This test case passes when the questions of a deleted user, and the answers the user posted to the questions of others, are removed from the search index.
+    @Test
+    public void deleteUserRemovesContentFromSearchIndex() throws Exception {
+        final String name = randomName();
+        final String userUuid = signup(name);
+        final String accessToken = signin(name);
+        final String ownQuestion = createQuestion("question" + name, accessToken);
+        final String otherQuestion = createQuestion("other question", "database_accesstoken1");
+        mvc.perform(MockMvcRequestBuilders.post("/question/" + otherQuestion + "/answer/create").param("answer", "answer" + name).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", accessToken))
+                .andExpect(status().isCreated());
+        assertEquals(Collections.singletonList(ownQuestion), questionSearchIndex.search("question" + name, 10));
+        assertEquals(Collections.singletonList(otherQuestion), questionSearchIndex.search("answer" + name, 10));
 
-}
+        mvc.perform(MockMvcRequestBuilders.delete("/admin/user/" + userUuid).header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk());
+
+        assertEquals(Collections.emptyList(), questionSearchIndex.search("question" + name, 10));
+        assertEquals(Collections.emptyList(), questionSearchIndex.search("answer" + name, 10));
+    }
+
+    //This test case passes when the questions of a deleted user are removed from the question feed.
+    @Test
+    public void deleteUserRemovesQuestionsFromFeed() throws Exception {
+        final String name = randomName();
+        final String userUuid = signup(name);
+        final String question = createQuestion("feed question", signin(name));
+        assertTrue(questionFeed.top(questionFeed.size()).contains(question));
+
+        mvc.perform(MockMvcRequestBuilders.delete("/admin/user/" + userUuid).header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk());
+
+        assertFalse(questionFeed.top(questionFeed.size()).contains(question));
+    }
+
+    //This test case passes when deleting a user takes the answers of the user off the answer count and latest answer time of the questions of others.
+    @Test
+    public void deleteUserUpdatesAnswerActivityOfOtherQuestions() throws Exception {
+        final String name = randomName();
+        final String userUuid = signup(name);
+        final String question = createQuestion("answered question", "database_accesstoken1");
+        mvc.perform(MockMvcRequestBuilders.post("/question/" + question + "/answer/create").param("answer", "answer" + name).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", signin(name)))
+                .andExpect(status().isCreated());
+        assertEquals(1, (int) jdbcTemplate.queryForObject("select answer_count from question where uuid = ?", Integer.class, question));
+
+        mvc.perform(MockMvcRequestBuilders.delete("/admin/user/" + userUuid).header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk());
+
+        assertEquals(0, (int) jdbcTemplate.queryForObject("select count(*) from answer a join question q on a.question_id = q.id where q.uuid = ?", Integer.class, question));
+        assertEquals(0, (int) jdbcTemplate.queryForObject("select answer_count from question where uuid = ?", Integer.class, question));
+        assertNull(jdbcTemplate.queryForObject("select last_answer_at from question where uuid = ?", Timestamp.class, question));
+        assertEquals(0, questionDao.getQuestionById(question).getAnswerCount());
+    }
+
+    //This test case passes when an answer count which no longer matches the answers of the question, e.g. after the database deleted answers through ON DELETE CASCADE, is corrected by the reconciler.
+    @Test
+    public void reconcilerCorrectsAnswerActivity() throws Exception {
+        final String name = randomName();
+        signup(name);
+        final String question = createQuestion("answered question", "database_accesstoken1");
+        mvc.perform(MockMvcRequestBuilders.post("/question/" + question + "/answer/create").param("answer", "answer" + name).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", signin(name)))
+                .andExpect(status().isCreated());
+        jdbcTemplate.update("update question set answer_count = 5 where uuid = ?", question);
 
+        assertTrue(questionActivityReconciler.reconcile() >= 1);
+
+        assertEquals(1, (int) jdbcTemplate.queryForObject("select answer_count from question where uuid = ?", Integer.class, question));
+        assertEquals(1, questionDao.getQuestionById(question).getAnswerCount());
+    }
+
+    private static String randomName() {
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+    }
+
+    private String signup(final String name) throws Exception {
+        return JsonPath.read(mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=" + name + "&emailAddress=" + name + "@quora.com&password=secret&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString(), "$.id");
+    }
+
+    private String signin(final String name) throws Exception {
+        final String credentials = Base64.getEncoder().encodeToString((name + ":secret").getBytes(StandardCharsets.UTF_8));
+        return mvc.perform(MockMvcRequestBuilders.post("/user/signin").header("authorization", "Basic " + credentials))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("access-token");
+    }
+
+    private String createQuestion(final String content, final String accessToken) throws Exception {
+        return JsonPath.read(mvc.perform(MockMvcRequestBuilders.post("/question/create").param("content", content).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", accessToken))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), "$.id");
+    }
+}
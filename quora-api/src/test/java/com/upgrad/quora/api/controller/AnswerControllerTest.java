@@ -1,16 +1,25 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -22,6 +31,12 @@ public class AnswerControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
 
     //This test case passes when you try to create the answer but the JWT token entered does not exist in the database.
     @Test
@@ -31,6 +46,44 @@ public class AnswerControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
 
+    //This test case passes when you try to create a batch of answers which does not contain any answer.
+    @Test
+    public void createEmptyAnswerBatch() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/database_question_uuid/answer/batch").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content("{\"answers\":[]}").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ANS-002"));
+    }
+
+    //This test case passes when a batch of answers is created, the ids are returned in the order of the request, and the answers and the answer count of the question are stored.
+    @Test
+    public void createAnswerBatch() throws Exception {
+        final String question = JsonPath.read(mvc.perform(MockMvcRequestBuilders.post("/question/create").param("content", "batch question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), "$.id");
+        final List<String> answers = Arrays.asList("first batch answer", "second batch answer", "third batch answer");
+
+        final String response = mvc.perform(MockMvcRequestBuilders.post("/question/" + question + "/answer/batch").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content(objectMapper.writeValueAsString(Collections.singletonMap("answers", answers))).header("authorization", "database_accesstoken2"))
+                .andExpect(status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("status").value("ANSWERS CREATED"))
+                .andReturn().getResponse().getContentAsString();
+
+        final List<String> ids = JsonPath.read(response, "$.ids");
+        assertEquals(answers.size(), new HashSet<>(ids).size());
+        for (int i = 0; i < answers.size(); i++) {
+            assertEquals(answers.get(i), jdbcTemplate.queryForObject("select a.ans from answer a join question q on a.question_id = q.id join users u on a.user_id = u.id where a.uuid = ? and q.uuid = ? and u.uuid = 'database_uuid2'", String.class, ids.get(i), question));
+        }
+        assertEquals(answers.size(), (int) jdbcTemplate.queryForObject("select count(*) from answer a join question q on a.question_id = q.id where q.uuid = ?", Integer.class, question));
+        assertEquals(answers.size(), (int) jdbcTemplate.queryForObject("select answer_count from question where uuid = ?", Integer.class, question));
+    }
+
+    //This test case passes when you try to create a batch of answers for the question which does not exist in the database.
+    @Test
+    public void createAnswerBatchForNonExistingQuestion() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/non_existing_question_uuid/answer/batch").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content("{\"answers\":[\"my_answer\"]}").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+    }
+
     //This test case passes when you try to create the answer but the user corresponding to the JWT token entered is signed out of the application.
     @Test
     public void createAnswerWithSignedOutUser() throws Exception {
@@ -27,6 +27,17 @@ public class CommonControllerTest {
                 .andExpect(status().isOk());
     }
 
+    //This test case passes when the user details are sent with an ETag and the same request with that ETag in If-None-Match returns 304.
+    @Test
+    public void detailsNotModified() throws Exception {
+        final String etag = mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "database_accesstoken").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
     //This test case passes when you try to get the details of the existing user but the JWT token entered does not exist in the database.
     @Test
     public void detailsUsingNonExistingAccessToken() throws Exception {
@@ -1,20 +1,42 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+//small pages, so the streamed listings are read from several transactions
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = "quora.listing.stream.page-size=2")
 @AutoConfigureMockMvc
 
 public class QuestionControllerTest {
@@ -22,6 +44,12 @@ public class QuestionControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
 
     //This test case passes when you try to create the question but the JWT token entered does not exist in the database.
     @Test
@@ -46,6 +74,96 @@ public class QuestionControllerTest {
                 .andExpect(status().isOk());
     }
 
+    //This test case passes when all the questions are streamed as one valid JSON array, read over several pages, with every question once and newest first.
+    @Test
+    public void getAllQuestionsStreamsEveryQuestion() throws Exception {
+        final List<String> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(0, createQuestion("streamed_question_" + i + " \"quoted\" \u00fcn\u00efcode"));
+        }
+
+        final String body = mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString();
+
+        final JsonNode questions = objectMapper.readTree(body);
+        assertTrue(questions.isArray());
+        final List<String> ids = JsonPath.read(body, "$[*].id");
+        assertEquals((int) jdbcTemplate.queryForObject("select count(*) from question", Integer.class), ids.size());
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+        assertEquals(created, ids.subList(0, created.size()));
+        assertEquals("streamed_question_4 \"quoted\" \u00fcn\u00efcode", questions.get(0).get("content").asText());
+    }
+
+    //This test case passes when a user without questions gets an empty JSON array.
+    @Test
+    public void getAllQuestionsByUserWithoutQuestions() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid4").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.content().json("[]"));
+    }
+
+    //This test case passes when you try to get one page of the questions and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
+    @Test
+    public void getQuestionsPage() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all?limit=1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+    }
+
+    //This test case passes when you try to get a page of the questions but the page cursor entered was not returned by a previous page.
+    @Test
+    public void getQuestionsPageWithInvalidCursor() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all?cursor=invalid_cursor").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("PAG-001"));
+    }
+
+    //This test case passes when following the next page cursors returns every question exactly once, newest first, also questions posted at the same time, and the last page has no cursor.
+    @Test
+    public void getQuestionsPagesToTheEnd() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            jdbcTemplate.update("insert into question (uuid, content, date, user_id) values (?, 'question posted at the same time', '2018-09-17 19:41:19.593', 1026)", UUID.randomUUID().toString());
+        }
+        final List<String> expected = jdbcTemplate.queryForList("select uuid from question order by date desc, id desc", String.class);
+
+        final List<String> ids = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            final MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get("/question/all").param("limit", "2").header("authorization", "database_accesstoken1");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            final MockHttpServletResponse response = mvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse();
+            final List<String> page = JsonPath.read(response.getContentAsString(), "$[*].id");
+            assertTrue(page.size() <= 2);
+            ids.addAll(page);
+            cursor = response.getHeader("next-cursor");
+            pages++;
+            if (cursor != null) {
+                assertEquals(2, page.size());
+            }
+        } while (cursor != null && pages <= expected.size());
+
+        assertNull(cursor);
+        assertEquals(expected, ids);
+    }
+
+    //This test case passes when you try to get a page of the questions with a cursor which decodes but is not a page position.
+    @Test
+    public void getQuestionsPageWithMalformedCursor() throws Exception {
+        for (String raw : new String[]{"1537193479:593000000", "1537193479:593000000:1024:1", "a:b:1024", "1537193479:593000000:x", ""}) {
+            final String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+            mvc.perform(MockMvcRequestBuilders.get("/question/all").param("limit", "2").param("cursor", cursor).header("authorization", "database_accesstoken1"))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(MockMvcResultMatchers.jsonPath("code").value("PAG-001"));
+        }
+    }
+
     //This test case passes when you try to get the detail of all the questions but the JWT token entered does not exist in the database.
     @Test
     public void getAllQuestionsWithNonExistingAccessToken() throws Exception {
@@ -127,6 +245,111 @@ public class QuestionControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
     }
 
+    //This test case passes when you stream all the questions as newline delimited JSON and the question in the database is part of the stream.
+    @Test
+    public void streamAllQuestions() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all").accept(MediaType.APPLICATION_STREAM_JSON).header("authorization", "database_accesstoken1"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(containsString("database_question_uuid")));
+    }
+
+    //This test case passes when you try to stream all the questions posted by a specific user which does not exist in the database.
+    @Test
+    public void streamAllQuestionsForNonExistingUser() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/non_existing_user_uuid").accept(MediaType.APPLICATION_STREAM_JSON).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
+    }
+
+    //This test case passes when you search the questions and the question whose content matches the query is found by the search index.
+    @Test
+    public void searchQuestions() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/search?q=database_question_content&limit=100").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].id").value(hasItem("database_question_uuid")));
+    }
+
+    //This test case passes when the questions returned carry the number of their answers and the time of the latest one, which follow the answers created one by one, in a batch and deleted.
+    @Test
+    public void searchQuestionsWithAnswerCount() throws Exception {
+        final String word = "w" + UUID.randomUUID().toString().replace("-", "");
+        final String question = createQuestion(word);
+        assertAnswerActivity(word, question, 0, null);
+
+        final String single = JsonPath.read(mvc.perform(MockMvcRequestBuilders.post("/question/" + question + "/answer/create").param("answer", "single answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString(), "$.id");
+        assertAnswerActivity(word, question, 1, single);
+
+        final List<String> batch = JsonPath.read(mvc.perform(MockMvcRequestBuilders.post("/question/" + question + "/answer/batch").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content("{\"answers\":[\"first of batch\",\"second of batch\"]}").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString(), "$.ids");
+        assertAnswerActivity(word, question, 3, batch.get(1));
+
+        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/" + batch.get(1)).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        assertAnswerActivity(word, question, 2, batch.get(0));
+
+        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/" + batch.get(0)).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        assertAnswerActivity(word, question, 1, single);
+
+        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/" + single).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        assertAnswerActivity(word, question, 0, null);
+    }
+
+    //This test case passes when an edited question is only found by its new words, a deleted one is no longer found, and at most limit questions are returned.
+    @Test
+    public void searchFollowsEditAndDelete() throws Exception {
+        final String word = "w" + UUID.randomUUID().toString().replace("-", "");
+        final String first = createQuestion(word + " first");
+        final String second = createQuestion(word + " " + word + " second");
+        mvc.perform(MockMvcRequestBuilders.get("/question/search").param("q", word).param("limit", "1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(second));
+
+        mvc.perform(MockMvcRequestBuilders.put("/question/edit/" + second).param("content", "edited second").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/question/search").param("q", word).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].id").value(contains(first)));
+
+        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/" + first).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/question/search").param("q", word).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$").isEmpty());
+    }
+
+    //This test case passes when you try to search the questions but the user corresponding to the JWT token entered is signed out of the application.
+    @Test
+    public void searchQuestionsWithSignedOutUser() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/search?q=question").header("authorization", "database_accesstoken3"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+    }
+
+    //This test case passes when you get the question feed and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
+    @Test
+    public void getQuestionFeed() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/feed?limit=100").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$").isArray());
+    }
+
+    //This test case passes when you try to get the question feed but the user corresponding to the JWT token entered is signed out of the application.
+    @Test
+    public void getQuestionFeedWithSignedOutUser() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/feed").header("authorization", "database_accesstoken3"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+    }
+
     //This test case passes when you try to get all the questions posted by a specific user but the JWT token entered does not exist in the database.
     @Test
     public void getAllQuestionsByUserWithNonExistingAccessToken() throws Exception {
@@ -151,5 +374,25 @@ public class QuestionControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
     }
 
+    //the question found by the word has the given answer count, in the response and in the DB, and was last answered at the date of the given answer
+    private void assertAnswerActivity(final String word, final String question, final int answerCount, final String latestAnswer) throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/search").param("q", word).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].id").value(contains(question)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].answerCount").value(answerCount));
+        assertEquals(answerCount, (int) jdbcTemplate.queryForObject("select answer_count from question where uuid = ?", Integer.class, question));
+        final Timestamp lastAnswerAt = jdbcTemplate.queryForObject("select last_answer_at from question where uuid = ?", Timestamp.class, question);
+        if (latestAnswer == null) {
+            assertNull(lastAnswerAt);
+        } else {
+            assertEquals(jdbcTemplate.queryForObject("select date from answer where uuid = ?", Timestamp.class, latestAnswer), lastAnswerAt);
+        }
+    }
 
+    private String createQuestion(final String content) throws Exception {
+        final String response = mvc.perform(MockMvcRequestBuilders.post("/question/create").param("content", content).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(response, "$.id");
+    }
 }
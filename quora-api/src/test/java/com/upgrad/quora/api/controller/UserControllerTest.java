@@ -1,5 +1,10 @@
 package com.upgrad.quora.api.controller;
 
+import com.jayway.jsonpath.JsonPath;
+import com.upgrad.quora.service.business.AuthenticationService;
+import com.upgrad.quora.service.cache.AccessTokenCache;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.UserEntity;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +16,13 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -21,6 +33,15 @@ public class UserControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private AccessTokenCache accessTokenCache;
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private UserDao userDao;
+
     //This test case passes when you signup with a username that already exists in the database.
     @Test
     public void signupWithRepeatedUserName() throws Exception {
@@ -46,4 +67,77 @@ public class UserControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-001"));
     }
 
+    //This test case passes when an unexpired access token is served from the access token cache, stops working as soon as the user signs out, and a new sign in works again.
+    @Test
+    public void cachedAccessTokenUntilSignout() throws Exception {
+        final String userName = "cache_" + UUID.randomUUID().toString().substring(0, 8);
+        final String userUuid = signup(userName);
+        final String accessToken = signin(userName);
+
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/" + userUuid).header("authorization", accessToken))
+                .andExpect(status().isOk());
+        final long hits = accessTokenCache.getHits();
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/" + userUuid).header("authorization", accessToken))
+                .andExpect(status().isOk());
+        assertEquals(hits + 1, accessTokenCache.getHits());
+
+        mvc.perform(MockMvcRequestBuilders.post("/user/signout").header("authorization", accessToken))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("id").value(userUuid));
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/" + userUuid).header("authorization", accessToken))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+
+        final String newAccessToken = signin(userName);
+        assertNotEquals(accessToken, newAccessToken);
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/" + userUuid).header("authorization", newAccessToken))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/" + userUuid).header("authorization", accessToken))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+    }
+
+    //This test case passes when the signed in user handed out by the access token cache is a copy, so changing it does not change the cached token.
+    @Test
+    public void cachedAccessTokenIsCopied() throws Exception {
+        final String userName = "copy_" + UUID.randomUUID().toString().substring(0, 8);
+        signup(userName);
+        final String accessToken = signin(userName);
+        mvc.perform(MockMvcRequestBuilders.get("/question/feed").header("authorization", accessToken))
+                .andExpect(status().isOk());
+
+        accessTokenCache.get(accessToken).getUser().setRole("admin");
+        assertEquals("nonadmin", accessTokenCache.get(accessToken).getUser().getRole());
+        assertTrue(accessTokenCache.get(accessToken) != accessTokenCache.get(accessToken));
+    }
+
+    //This test case passes when every request gets an instance of the signed in user of its own, read again by uuid, so a changed role takes effect while the token is cached.
+    @Test
+    public void authenticatedUserIsReadAgain() throws Exception {
+        final String userName = "fresh_" + UUID.randomUUID().toString().substring(0, 8);
+        signup(userName);
+        final String accessToken = signin(userName);
+
+        final UserEntity user = authenticationService.authenticate(accessToken, "signed out");
+        assertTrue(user != authenticationService.authenticate(accessToken, "signed out"));
+        user.setRole("admin");
+        userDao.updateUser(user);
+
+        assertEquals("nonadmin", accessTokenCache.get(accessToken).getUser().getRole());
+        assertEquals("admin", authenticationService.authenticate(accessToken, "signed out").getRole());
+    }
+
+    private String signup(final String userName) throws Exception {
+        final String response = mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=" + userName + "&emailAddress=" + userName + "@quora.com&password=secret&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(response, "$.id");
+    }
+
+    private String signin(final String userName) throws Exception {
+        final String credentials = Base64.getEncoder().encodeToString((userName + ":secret").getBytes(StandardCharsets.UTF_8));
+        return mvc.perform(MockMvcRequestBuilders.post("/user/signin").header("authorization", "Basic " + credentials))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("access-token");
+    }
 }
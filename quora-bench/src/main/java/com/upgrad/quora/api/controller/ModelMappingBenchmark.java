@@ -0,0 +1,90 @@
+package com.upgrad.quora.api.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.api.model.AnswerDetailsResponse;
+import com.upgrad.quora.api.model.QuestionDetailsResponse;
+import com.upgrad.quora.service.dto.AnswerDetails;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of mapping the results of the listing endpoints to the Swagger models, alone and together with serialising them.
+ * Lives in the controller package to reach the package-private mapping methods of the controllers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelMappingBenchmark {
+
+    @Param({"1", "50", "500"})
+    public int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private List<QuestionEntity> questions;
+
+    private List<AnswerDetails> answers;
+
+    @Setup
+    public void setUp() {
+        questions = new ArrayList<>(size);
+        answers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final QuestionEntity questionEntity = new QuestionEntity();
+            questionEntity.setId(i);
+            questionEntity.setUuid(UUID.randomUUID().toString());
+            questionEntity.setContent("What is the capacity of question number " + i + "?");
+            questionEntity.setDate(ZonedDateTime.now());
+            questions.add(questionEntity);
+            answers.add(new AnswerDetails(i, UUID.randomUUID().toString(), "Answer number " + i, questionEntity.getUuid(), questionEntity.getContent()));
+        }
+    }
+
+    @Benchmark
+    public List<QuestionDetailsResponse> mapQuestions() {
+        final List<QuestionDetailsResponse> result = new ArrayList<>(questions.size());
+        for (QuestionEntity questionEntity : questions) {
+            result.add(QuestionController.toQuestionDetailsResponse(questionEntity));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<AnswerDetailsResponse> mapAnswers() {
+        final List<AnswerDetailsResponse> result = new ArrayList<>(answers.size());
+        for (AnswerDetails answerDetails : answers) {
+            result.add(AnswerController.toAnswerDetailsResponse(answerDetails));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public byte[] mapAndSerializeQuestions() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(mapQuestions());
+    }
+
+    @Benchmark
+    public byte[] mapAndSerializeAnswers() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(mapAnswers());
+    }
+}
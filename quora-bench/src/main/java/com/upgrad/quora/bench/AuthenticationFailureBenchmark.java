@@ -0,0 +1,90 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.api.exception.RestExceptionHandler;
+import com.upgrad.quora.api.model.ErrorResponse;
+import com.upgrad.quora.service.business.AuthenticationService;
+import com.upgrad.quora.service.business.StatelessTokenVerifier;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.UserAuthTokenEntity;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the requests rejected because of their access token (ATHR-001 and ATHR-002), from the token check to the
+ * error response, from 8 threads. The token lookup is answered in memory, so only the error path is measured; a
+ * stack trace filled in by every rejection is measured alongside for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class AuthenticationFailureBenchmark {
+
+    private final AuthenticationService authenticationService = new AuthenticationService();
+
+    private final RestExceptionHandler restExceptionHandler = new RestExceptionHandler();
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        final UserAuthTokenEntity signedOutToken = new UserAuthTokenEntity();
+        signedOutToken.setLogoutAt(ZonedDateTime.now());
+        BenchSupport.setField(authenticationService, "userDao", new UserDao() {
+            @Override
+            public UserAuthTokenEntity getUserAuthToken(final String accessToken) {
+                return "signed_out_token".equals(accessToken) ? signedOutToken : null;
+            }
+        });
+        BenchSupport.setField(authenticationService, "statelessTokenVerifier", new StatelessTokenVerifier());
+        BenchSupport.setField(restExceptionHandler, "meterRegistry", new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> notSignedIn() {
+        try {
+            authenticationService.authenticateUuid("unknown_token", "User is signed out.Sign in first to get all questions");
+            throw new IllegalStateException();
+        } catch (AuthorizationFailedException e) {
+            return restExceptionHandler.unauthorizedException(e, null);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> signedOut() {
+        try {
+            authenticationService.authenticateUuid("signed_out_token", "User is signed out.Sign in first to get all questions");
+            throw new IllegalStateException();
+        } catch (AuthorizationFailedException e) {
+            return restExceptionHandler.unauthorizedException(e, null);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> notSignedInWithStackTrace() {
+        try {
+            authenticationService.authenticateUuid("unknown_token", "User is signed out.Sign in first to get all questions");
+            throw new IllegalStateException();
+        } catch (AuthorizationFailedException e) {
+            final ResponseEntity<ErrorResponse> response = restExceptionHandler.unauthorizedException(e, null);
+            new Exception(e.getErrorMessage()).fillInStackTrace();
+            return response;
+        }
+    }
+}
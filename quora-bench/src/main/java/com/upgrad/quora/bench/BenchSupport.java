@@ -0,0 +1,26 @@
+package com.upgrad.quora.bench;
+
+import java.lang.reflect.Field;
+
+/**
+ * Helpers to set up the Spring components outside of an application context.
+ */
+final class BenchSupport {
+
+    private BenchSupport() {
+    }
+
+    /**
+     * This method sets a field which is normally injected by Spring
+     *
+     * @param target
+     * @param name   - name of the field
+     * @param value
+     * @throws ReflectiveOperationException
+     */
+    static void setField(final Object target, final String name, final Object value) throws ReflectiveOperationException {
+        final Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -0,0 +1,147 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.api.QuoraApiApplication;
+import com.upgrad.quora.service.business.AnswerService;
+import com.upgrad.quora.service.business.QuestionService;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserAuthTokenEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the inserts done at signin (one access token) and when posting (one question, a batch of answers), from
+ * concurrent threads, with the pooled-lo sequence ids of the entities and with the IDENTITY ids used before them.
+ * The application context runs against an in-memory H2 database in PostgreSQL mode by default; pass
+ * -p url=jdbc:postgresql://localhost:5432/quora -p username=postgres to measure against a database set up by quora-db.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class EntityInsertBenchmark {
+
+    @Param({"pooled-lo", "identity"})
+    public String ids;
+
+    @Param({"jdbc:h2:mem:quora;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"})
+    public String url;
+
+    @Param({"sa"})
+    public String username;
+
+    @Param({""})
+    public String password;
+
+    @Param({"50"})
+    public int answers;
+
+    private ConfigurableApplicationContext context;
+
+    private UserDao userDao;
+
+    private QuestionService questionService;
+
+    private AnswerService answerService;
+
+    private TransactionTemplate transactionTemplate;
+
+    private UserEntity user;
+
+    private String questionUuid;
+
+    @Setup
+    public void setUp() throws Exception {
+        final List<String> args = new ArrayList<>();
+        args.add("--server.port=0");
+        args.add("--spring.datasource.url=" + url);
+        args.add("--spring.datasource.username=" + username);
+        args.add("--spring.datasource.password=" + password);
+        args.add("--logging.level.root=WARN");
+        if (url.startsWith("jdbc:h2:")) {
+            args.add("--spring.datasource.driverClassName=org.h2.Driver");
+            args.add("--spring.datasource.schema=classpath:sql/quora.sql");
+            args.add("--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect");
+        }
+        if ("identity".equals(ids)) {
+            args.add("--spring.jpa.mapping-resources=META-INF/identity-ids.xml");
+        }
+        context = new SpringApplicationBuilder(QuoraApiApplication.class).run(args.toArray(new String[0]));
+        userDao = context.getBean(UserDao.class);
+        questionService = context.getBean(QuestionService.class);
+        answerService = context.getBean(AnswerService.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        final String suffix = UUID.randomUUID().toString().substring(0, 8);
+        final UserEntity userEntity = new UserEntity();
+        userEntity.setUuid(UUID.randomUUID().toString());
+        userEntity.setFirstName("bench");
+        userEntity.setLastName("bench");
+        userEntity.setUserName("bench" + suffix);
+        userEntity.setEmail("bench" + suffix + "@example.com");
+        userEntity.setPassword("507FF5FED1CAC746");
+        userEntity.setSalt("8Xt6jxoCI3MWsVaKY/1ySAp2qzlb2Z7P89+vDrb1o6U=");
+        userEntity.setRole("nonadmin");
+        user = transactionTemplate.execute(status -> userDao.createUser(userEntity));
+        questionUuid = createQuestion();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserAuthTokenEntity signinToken() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        final UserAuthTokenEntity userAuthToken = new UserAuthTokenEntity();
+        userAuthToken.setUser(user);
+        userAuthToken.setUuid(user.getUuid());
+        userAuthToken.setAccessToken(UUID.randomUUID().toString());
+        userAuthToken.setLoginAt(now);
+        userAuthToken.setExpiresAt(now.plusHours(8));
+        return transactionTemplate.execute(status -> userDao.createAuthToken(userAuthToken));
+    }
+
+    @Benchmark
+    public String createQuestion() {
+        final QuestionEntity questionEntity = new QuestionEntity();
+        questionEntity.setContent("What is the throughput of question inserts?");
+        return questionService.createQuestion(questionEntity, user).getUuid();
+    }
+
+    @Benchmark
+    public List<AnswerEntity> createAnswerBatch() throws Exception {
+        final List<String> batch = new ArrayList<>(answers);
+        for (int i = 0; i < answers; i++) {
+            batch.add("Answer number " + i);
+        }
+        return answerService.createAnswers(batch, user, questionUuid);
+    }
+}
@@ -0,0 +1,62 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.business.JwtTokenProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of issuing an access token at signin. Tokens signed with the user password need a new provider per signin,
+ * tokens signed with the server key reuse one provider.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private final String userUuid = UUID.randomUUID().toString();
+
+    private final String encryptedPassword = "507FF5FED1CAC746507FF5FED1CAC746507FF5FED1CAC746507FF5FED1CAC746";
+
+    private JwtTokenProvider sharedProvider;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        sharedProvider = new JwtTokenProvider("server-secret-used-for-stateless-verification");
+        final ZonedDateTime now = ZonedDateTime.now();
+        token = sharedProvider.generateToken(userUuid, now, now.plusHours(8));
+    }
+
+    @Benchmark
+    public String generateTokenWithPasswordKey() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        return new JwtTokenProvider(encryptedPassword).generateToken(userUuid, now, now.plusHours(8));
+    }
+
+    @Benchmark
+    public String generateTokenWithServerKey() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        return sharedProvider.generateToken(userUuid, now, now.plusHours(8));
+    }
+
+    @Benchmark
+    public String verifyToken() {
+        return sharedProvider.verifyToken(token);
+    }
+}
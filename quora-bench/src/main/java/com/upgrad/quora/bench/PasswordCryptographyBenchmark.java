@@ -0,0 +1,66 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.business.PasswordCryptographyProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of hashing a password at signup (new salt) and at signin (stored salt), including the hop to the hashing pool.
+ * Run with -t to see how the bounded pool behaves when more request threads hash than there are hashing threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordCryptographyBenchmark {
+
+    //0 means one hashing thread per available processor, as in production
+    @Param({"0"})
+    public int hashingThreads;
+
+    //large enough that the benchmark measures hashing and not rejections
+    @Param({"1024"})
+    public int queueCapacity;
+
+    private PasswordCryptographyProvider provider;
+
+    private String salt;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        provider = new PasswordCryptographyProvider();
+        BenchSupport.setField(provider, "threads", hashingThreads);
+        BenchSupport.setField(provider, "queueCapacity", queueCapacity);
+        provider.init();
+        salt = provider.encrypt("password")[0];
+    }
+
+    @TearDown
+    public void tearDown() {
+        provider.shutdown();
+    }
+
+    @Benchmark
+    public String[] encryptForSignup() {
+        return provider.encrypt("password");
+    }
+
+    @Benchmark
+    public String encryptForSignin() {
+        return provider.encrypt("password", salt);
+    }
+}
@@ -0,0 +1,75 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.feed.QuestionFeed;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the feed updates made when questions are answered, while other threads keep answering and reading the feed.
+ * Seven threads move random questions to a newer score and one thread reads the first page of the feed. The updates
+ * pick their question among the questions twice the size of the feed, so some of them put back questions which
+ * had been dropped from the feed.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuestionFeedBenchmark {
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"20"})
+    public int page;
+
+    private QuestionFeed feed;
+
+    private String[] questions;
+
+    private long now;
+
+    @Setup
+    public void setUp() {
+        feed = new QuestionFeed(size, 12);
+        questions = new String[size * 2];
+        now = System.currentTimeMillis() / 1000;
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < questions.length; i++) {
+            questions[i] = UUID.randomUUID().toString();
+            feed.update(questions[i], feed.score(random.nextInt(10), now - random.nextInt(7 * 24 * 3600)));
+        }
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(7)
+    public void answer() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        feed.update(questions[random.nextInt(questions.length)], feed.score(random.nextInt(10), now + random.nextInt(3600)));
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public List<String> read() {
+        return feed.top(page);
+    }
+}
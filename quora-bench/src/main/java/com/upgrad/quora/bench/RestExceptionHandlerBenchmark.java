@@ -0,0 +1,65 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.api.exception.RestExceptionHandler;
+import com.upgrad.quora.api.model.ErrorResponse;
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.UnexpectedException;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidQuestionException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of an error response: creating the exception, counting the error code and looking up the response entity.
+ * The domain exceptions skip the stack trace and their responses are prebuilt per code and message; the server busy
+ * response of UnexpectedException is still built, with the stack trace, on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestExceptionHandlerBenchmark {
+
+    private final RestExceptionHandler restExceptionHandler = new RestExceptionHandler();
+
+    private final AuthorizationFailedException signedOut = new AuthorizationFailedException("ATHR-002", "User is signed out");
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        BenchSupport.setField(restExceptionHandler, "meterRegistry", new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> authorizationFailed() {
+        return restExceptionHandler.unauthorizedException(new AuthorizationFailedException("ATHR-001", "User has not signed in"), null);
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> authorizationFailedPreallocated() {
+        return restExceptionHandler.unauthorizedException(signedOut, null);
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> invalidQuestion() {
+        return restExceptionHandler.answerNotFoundException(new InvalidQuestionException("QUES-001", "Entered question uuid does not exist"), null);
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> serverBusy() {
+        return restExceptionHandler.unexpectedException(new UnexpectedException(GenericErrorCode.GEN_002), null);
+    }
+}
@@ -0,0 +1,49 @@
+package com.upgrad.quora.bench.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histogram, in microseconds, and error count of one endpoint.
+ */
+final class EndpointStats {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final String name;
+
+    private final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+
+    private final AtomicLong errors = new AtomicLong();
+
+    EndpointStats(final String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Histogram getHistogram() {
+        return histogram;
+    }
+
+    long getErrors() {
+        return errors.get();
+    }
+
+    void record(final long elapsedNanos, final boolean success) {
+        histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), HIGHEST_TRACKABLE_MICROS));
+        if (!success) {
+            errors.incrementAndGet();
+        }
+    }
+
+    void reset() {
+        histogram.reset();
+        errors.set(0);
+    }
+}
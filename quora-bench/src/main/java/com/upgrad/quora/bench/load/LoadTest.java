@@ -0,0 +1,118 @@
+package com.upgrad.quora.bench.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.api.QuoraApiApplication;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * End-to-end load test. Boots QuoraApiApplication on a random port against an in-memory H2 database in PostgreSQL mode,
+ * created from quora.sql, and drives it with concurrent virtual users over HTTP.
+ * Prints throughput and p50/p95/p99 latency per endpoint and writes the HdrHistogram percentile distribution of every
+ * endpoint to {out}/{endpoint}.hgrm.
+ * <p>
+ * Usage: java -cp quora-bench/target/benchmarks.jar com.upgrad.quora.bench.load.LoadTest [users=16] [warmup=10] [duration=60]
+ * [questionsPerSession=5] [pageSize=50] [out=target/loadtest]
+ */
+public class LoadTest {
+
+    //command line arguments take precedence over the application.yaml of quora-api
+    private static final String[] EMBEDDED_DATABASE_ARGS = {
+            "--server.port=0",
+            "--spring.datasource.url=jdbc:h2:mem:quora;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+            "--spring.datasource.driverClassName=org.h2.Driver",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.datasource.initialization-mode=always",
+            "--spring.datasource.schema=classpath:sql/quora.sql",
+            "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+            "--logging.level.root=WARN"
+    };
+
+    private static final String[] ENDPOINTS = {"signup", "signin", "question/create", "question/all", "answer/create", "answer/all", "signout"};
+
+    public static void main(final String[] args) throws Exception {
+        final LoadTestSettings settings = LoadTestSettings.parse(args);
+        final ConfigurableApplicationContext context = new SpringApplicationBuilder(QuoraApiApplication.class).run(EMBEDDED_DATABASE_ARGS);
+        try {
+            final int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            final String contextPath = context.getEnvironment().getProperty("server.servlet.contextPath", "");
+            run(settings, "http://localhost:" + port + contextPath);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void run(final LoadTestSettings settings, final String baseUrl) throws InterruptedException, IOException {
+        final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+        for (String endpoint : ENDPOINTS) {
+            stats.put(endpoint, new EndpointStats(endpoint));
+        }
+        final QuoraClient client = new QuoraClient(baseUrl, new ObjectMapper(), stats::get);
+        final String runId = Long.toString(System.currentTimeMillis(), 36);
+        final AtomicBoolean stopped = new AtomicBoolean();
+
+        System.out.println("Load test against " + baseUrl + " with " + settings);
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < settings.users; i++) {
+            final Thread thread = new Thread(new VirtualUser(i, runId, client, settings, stopped::get), "virtual-user-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+
+        TimeUnit.SECONDS.sleep(settings.warmup);
+        stats.values().forEach(EndpointStats::reset);
+        final long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(settings.duration);
+        final double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        //snapshot before the users are stopped, so requests cut short by the stop are not recorded
+        final Map<String, Histogram> snapshot = new HashMap<>();
+        final Map<String, Long> errors = new HashMap<>();
+        for (EndpointStats endpointStats : stats.values()) {
+            snapshot.put(endpointStats.getName(), endpointStats.getHistogram().copy());
+            errors.put(endpointStats.getName(), endpointStats.getErrors());
+        }
+        stopped.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        report(settings, snapshot, errors, elapsedSeconds);
+    }
+
+    private static void report(final LoadTestSettings settings, final Map<String, Histogram> snapshot, final Map<String, Long> errors,
+                               final double elapsedSeconds) throws IOException {
+        Files.createDirectories(settings.out);
+        System.out.printf("%-16s %10s %8s %10s %10s %10s %10s %10s%n", "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        long total = 0;
+        for (String endpoint : ENDPOINTS) {
+            final Histogram histogram = snapshot.get(endpoint);
+            total += histogram.getTotalCount();
+            System.out.printf("%-16s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n", endpoint, histogram.getTotalCount(), errors.get(endpoint),
+                    histogram.getTotalCount() / elapsedSeconds, millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(95)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getMaxValue()));
+            try (PrintStream out = new PrintStream(Files.newOutputStream(settings.out.resolve(endpoint.replace('/', '-') + ".hgrm")))) {
+                //values are recorded in microseconds and reported in milliseconds
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        System.out.printf("%-16s %10d %8s %10.1f%n", "total", total, "", total / elapsedSeconds);
+    }
+
+    private static double millis(final long micros) {
+        return micros / 1000.0;
+    }
+}
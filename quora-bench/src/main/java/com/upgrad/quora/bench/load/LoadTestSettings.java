@@ -0,0 +1,68 @@
+package com.upgrad.quora.bench.load;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Settings of a load test run, read from key=value arguments, e.g. users=32 duration=120.
+ */
+final class LoadTestSettings {
+
+    //number of concurrent virtual users, each running signup, signin, question/answer traffic and signout in a loop
+    int users = 16;
+
+    //seconds during which requests are driven but not recorded
+    int warmup = 10;
+
+    //seconds during which requests are recorded
+    int duration = 60;
+
+    //questions posted, listed and answered per signed in session
+    int questionsPerSession = 5;
+
+    //page size used to list the questions
+    int pageSize = 50;
+
+    Path out = Paths.get("target", "loadtest");
+
+    static LoadTestSettings parse(final String[] args) {
+        final LoadTestSettings settings = new LoadTestSettings();
+        for (String arg : args) {
+            final int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected key=value but got " + arg);
+            }
+            final String key = arg.substring(0, separator);
+            final String value = arg.substring(separator + 1);
+            switch (key) {
+                case "users":
+                    settings.users = Integer.parseInt(value);
+                    break;
+                case "warmup":
+                    settings.warmup = Integer.parseInt(value);
+                    break;
+                case "duration":
+                    settings.duration = Integer.parseInt(value);
+                    break;
+                case "questionsPerSession":
+                    settings.questionsPerSession = Integer.parseInt(value);
+                    break;
+                case "pageSize":
+                    settings.pageSize = Integer.parseInt(value);
+                    break;
+                case "out":
+                    settings.out = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown setting " + key);
+            }
+        }
+        return settings;
+    }
+
+    @Override
+    public String toString() {
+        return "users=" + users + " warmup=" + warmup + "s duration=" + duration + "s questionsPerSession=" + questionsPerSession
+                + " pageSize=" + pageSize + " out=" + out;
+    }
+}
@@ -0,0 +1,162 @@
+package com.upgrad.quora.bench.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Minimal HTTP client of the quora api. Every call is timed and recorded in the stats of its endpoint.
+ */
+final class QuoraClient {
+
+    private static final String JSON = "application/json;charset=UTF-8";
+
+    private final String baseUrl;
+
+    private final ObjectMapper objectMapper;
+
+    private final Stats stats;
+
+    QuoraClient(final String baseUrl, final ObjectMapper objectMapper, final Stats stats) {
+        this.baseUrl = baseUrl;
+        this.objectMapper = objectMapper;
+        this.stats = stats;
+    }
+
+    /**
+     * Latency statistics of all endpoints.
+     */
+    interface Stats {
+        EndpointStats get(String endpoint);
+    }
+
+    /**
+     * Response of one call.
+     */
+    static final class Response {
+        final int status;
+        final byte[] body;
+        final String accessToken;
+
+        Response(final int status, final byte[] body, final String accessToken) {
+            this.status = status;
+            this.body = body;
+            this.accessToken = accessToken;
+        }
+
+        boolean isSuccess() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    String signup(final String username, final String password) {
+        final Response response = call("signup", "POST", "/user/signup?firstName=load&lastName=test&userName=" + encode(username)
+                + "&emailAddress=" + encode(username + "@example.com") + "&password=" + encode(password)
+                + "&country=India&aboutMe=load&dob=01-01-1990&contactNumber=0000000000", null);
+        return response.isSuccess() ? id(response) : null;
+    }
+
+    String signin(final String username, final String password) {
+        final String credentials = Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        final Response response = call("signin", "POST", "/user/signin", "Basic " + credentials);
+        return response.isSuccess() ? response.accessToken : null;
+    }
+
+    void signout(final String accessToken) {
+        call("signout", "POST", "/user/signout", accessToken);
+    }
+
+    String createQuestion(final String accessToken, final String content) {
+        final Response response = call("question/create", "POST", "/question/create?content=" + encode(content), accessToken);
+        return response.isSuccess() ? id(response) : null;
+    }
+
+    void listQuestions(final String accessToken, final int pageSize) {
+        call("question/all", "GET", "/question/all?limit=" + pageSize, accessToken);
+    }
+
+    String createAnswer(final String accessToken, final String questionId, final String answer) {
+        final Response response = call("answer/create", "POST", "/question/" + questionId + "/answer/create?answer=" + encode(answer), accessToken);
+        return response.isSuccess() ? id(response) : null;
+    }
+
+    void listAnswers(final String accessToken, final String questionId) {
+        call("answer/all", "GET", "/answer/all/" + questionId, accessToken);
+    }
+
+    private Response call(final String endpoint, final String method, final String pathAndQuery, final String authorization) {
+        final long start = System.nanoTime();
+        Response response;
+        try {
+            response = send(method, pathAndQuery, authorization);
+        } catch (IOException e) {
+            response = new Response(-1, new byte[0], null);
+        }
+        stats.get(endpoint).record(System.nanoTime() - start, response.isSuccess());
+        return response;
+    }
+
+    private Response send(final String method, final String pathAndQuery, final String authorization) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + pathAndQuery).openConnection();
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Accept", JSON);
+        if (authorization != null) {
+            connection.setRequestProperty("authorization", authorization);
+        }
+        if ("POST".equals(method)) {
+            //the create endpoints bind their models from the query string, but only accept requests declared as JSON
+            connection.setRequestProperty("Content-Type", JSON);
+            connection.setDoOutput(true);
+            try (OutputStream body = connection.getOutputStream()) {
+                body.flush();
+            }
+        }
+        final int status = connection.getResponseCode();
+        final InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        //the body is always read completely, so the connection goes back to the keep-alive pool
+        return new Response(status, readFully(body), connection.getHeaderField("access-token"));
+    }
+
+    private String id(final Response response) {
+        try {
+            final JsonNode json = objectMapper.readTree(response.body);
+            return json.path("id").asText(null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] readFully(final InputStream in) throws IOException {
+        if (in == null) {
+            return new byte[0];
+        }
+        try (InputStream input = in) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static String encode(final String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
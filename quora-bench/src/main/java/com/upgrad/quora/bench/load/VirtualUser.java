@@ -0,0 +1,54 @@
+package com.upgrad.quora.bench.load;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * One simulated user. It loops over complete sessions until the run is stopped: signup, signin, a number of
+ * question create/list and answer create/list rounds, and signout. Requests are sent back to back (closed loop).
+ */
+final class VirtualUser implements Runnable {
+
+    private static final String PASSWORD = "load-test-password";
+
+    private final int id;
+
+    private final String runId;
+
+    private final QuoraClient client;
+
+    private final LoadTestSettings settings;
+
+    private final BooleanSupplier stopped;
+
+    VirtualUser(final int id, final String runId, final QuoraClient client, final LoadTestSettings settings, final BooleanSupplier stopped) {
+        this.id = id;
+        this.runId = runId;
+        this.client = client;
+        this.settings = settings;
+        this.stopped = stopped;
+    }
+
+    @Override
+    public void run() {
+        int session = 0;
+        while (!stopped.getAsBoolean()) {
+            final String username = "load-" + runId + "-" + id + "-" + session++;
+            if (client.signup(username, PASSWORD) == null) {
+                continue;
+            }
+            final String accessToken = client.signin(username, PASSWORD);
+            if (accessToken == null) {
+                continue;
+            }
+            for (int i = 0; i < settings.questionsPerSession && !stopped.getAsBoolean(); i++) {
+                final String questionId = client.createQuestion(accessToken, "Question " + i + " of " + username + "?");
+                client.listQuestions(accessToken, settings.pageSize);
+                if (questionId != null) {
+                    client.createAnswer(accessToken, questionId, "Answer " + i + " of " + username);
+                    client.listAnswers(accessToken, questionId);
+                }
+            }
+            client.signout(accessToken);
+        }
+    }
+}
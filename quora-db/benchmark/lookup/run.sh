@@ -0,0 +1,53 @@
+#!/usr/bin/env bash
+# Measures the latency of the hot lookup queries before and after the versioned migrations are applied.
+#
+# Usage: run.sh <rows> [duration-seconds] [clients]
+#   e.g. run.sh 1000000 && run.sh 10000000
+#
+# The target database is taken from the usual libpq variables (PGHOST, PGPORT, PGUSER, PGPASSWORD, PGDATABASE).
+# The database is recreated from quora.sql and seeded, every lookup is run with pgbench without the indexes ("before"),
+# the migrations are applied and every lookup is run again ("after"). p50/p99/max per lookup are read from the
+# pgbench transaction logs and written to results/<rows>.txt.
+set -euo pipefail
+
+ROWS=${1:?"usage: run.sh <rows> [duration-seconds] [clients]"}
+DURATION=${2:-30}
+CLIENTS=${3:-4}
+
+HERE=$(cd "$(dirname "$0")" && pwd)
+SQL=$HERE/../../src/main/resources/sql
+RESULTS=$HERE/results
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+mkdir -p "$RESULTS"
+OUT=$RESULTS/$ROWS.txt
+
+LOOKUPS="userAuthTokenByAccessToken userByUuid getQuestionById getAnswerById questionByUserId getAllAnswersToQuestion"
+
+psql -q -v ON_ERROR_STOP=1 -f "$SQL/quora.sql"
+psql -q -v ON_ERROR_STOP=1 -v rows="$ROWS" -f "$HERE/seed.sql"
+
+measure() {
+    local phase=$1
+    for lookup in $LOOKUPS; do
+        rm -f "$WORK"/"$lookup".*
+        pgbench -n -T "$DURATION" -c "$CLIENTS" -D rows="$ROWS" -f "$HERE/$lookup.pgbench" \
+            -l --log-prefix="$WORK/$lookup" > /dev/null
+        # the third column of a pgbench transaction log is the latency in microseconds
+        cat "$WORK"/"$lookup".* | awk '{ print $3 }' | sort -n | awk -v phase="$phase" -v lookup="$lookup" '
+            { latency[NR] = $1 }
+            END {
+                p50 = latency[int(NR * 0.50) > 0 ? int(NR * 0.50) : 1]
+                p99 = latency[int(NR * 0.99) > 0 ? int(NR * 0.99) : 1]
+                printf "%-6s %-28s tx=%-9d p50=%8.3fms p99=%8.3fms max=%8.3fms\n", phase, lookup, NR, p50 / 1000, p99 / 1000, latency[NR] / 1000
+            }' | tee -a "$OUT"
+    done
+}
+
+echo "rows=$ROWS duration=${DURATION}s clients=$CLIENTS" | tee "$OUT"
+measure before
+for migration in $(ls "$SQL"/migration/V*.sql | sort); do
+    psql -q -v ON_ERROR_STOP=1 -f "$migration"
+done
+psql -q -c "ANALYZE"
+measure after
@@ -0,0 +1,28 @@
+--Fills the schema created by quora.sql with :rows questions, answers and access tokens spread over :rows/10 users.
+--Usage: psql -v rows=1000000 -f seed.sql
+--Keys are derived from the row number ('user-42', 'question-42', 'token-42', ...) so the pgbench scripts can pick random existing rows.
+\set users (:rows / 10)
+
+INSERT INTO USERS(id, uuid, firstName, lastName, userName, email, password, salt, role)
+SELECT n, 'user-' || n, 'first', 'last', 'username-' || n, 'user-' || n || '@example.com', 'password', 'salt', 'nonadmin'
+FROM generate_series(1, :users) AS n
+ON CONFLICT DO NOTHING;
+
+INSERT INTO USER_AUTH(uuid, USER_ID, ACCESS_TOKEN, EXPIRES_AT, LOGIN_AT)
+SELECT 'auth-' || n, 1 + n % :users, 'token-' || n, now() + interval '8 hours', now()
+FROM generate_series(1, :rows) AS n;
+
+INSERT INTO QUESTION(id, uuid, content, date, user_id)
+SELECT n, 'question-' || n, 'question content ' || n, now() - n * interval '1 second', 1 + n % :users
+FROM generate_series(1, :rows) AS n;
+
+INSERT INTO ANSWER(id, uuid, ans, date, user_id, question_id)
+SELECT n, 'answer-' || n, 'answer ' || n, now() - n * interval '1 second', 1 + (n * 7) % :users, 1 + n % :rows
+FROM generate_series(1, :rows) AS n;
+
+--The id columns are not SERIAL and own no sequence, so the sequences are named as in quora.sql.
+SELECT setval('users_id_seq', (SELECT max(id) FROM USERS));
+SELECT setval('question_id_seq', :rows);
+SELECT setval('answer_id_seq', :rows);
+
+ANALYZE;
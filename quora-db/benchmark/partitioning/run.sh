@@ -0,0 +1,86 @@
+#!/usr/bin/env bash
+# Compares the latency of the question and answer queries on the plain tables of quora.sql and on the partitioned tables
+# of quora_partitioned.sql.
+#
+# Usage: run.sh <answers> [duration-seconds] [clients]
+#   e.g. run.sh 50000000
+#
+# The target database is taken from the usual libpq variables (PGHOST, PGPORT, PGUSER, PGPASSWORD, PGDATABASE).
+# For each layout the database is recreated, migrated and seeded with <answers> answers to <answers>/10 questions, every
+# query is run with pgbench and p50/p99/max per query are read from the pgbench transaction logs and written to
+# results/<answers>.txt. The plans of the answer queries, showing which partitions were read, go to
+# results/<answers>-<layout>-plans.txt.
+set -euo pipefail
+
+ANSWERS=${1:?"usage: run.sh <answers> [duration-seconds] [clients]"}
+QUESTIONS=$((ANSWERS / 10))
+DURATION=${2:-30}
+CLIENTS=${3:-4}
+
+HERE=$(cd "$(dirname "$0")" && pwd)
+SQL=$HERE/../../src/main/resources/sql
+RESULTS=$HERE/results
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+mkdir -p "$RESULTS"
+OUT=$RESULTS/$ANSWERS.txt
+
+QUERIES="getAllAnswerDetailsToQuestion lastAnswerDateToQuestion questionPageAfter getAnswerById"
+# the uuid tables only exist in the partitioned layout
+PARTITIONED_QUERIES="getAnswerByUuidLookup"
+
+setup() {
+    local layout=$1
+    psql -q -v ON_ERROR_STOP=1 -f "$SQL/quora.sql"
+    if [ "$layout" = partitioned ]; then
+        psql -q -v ON_ERROR_STOP=1 -f "$SQL/quora_partitioned.sql"
+    fi
+    for migration in $(ls "$SQL"/migration/V*.sql | sort); do
+        psql -q -v ON_ERROR_STOP=1 -f "$migration"
+    done
+    psql -q -v ON_ERROR_STOP=1 -v answers="$ANSWERS" -f "$HERE/seed.sql"
+}
+
+plans() {
+    local layout=$1
+    local n=$((QUESTIONS / 2))
+    {
+        psql -c "SELECT pg_size_pretty(pg_total_relation_size(relid)) AS size, relid::regclass AS relation FROM pg_partition_tree('answer') WHERE isleaf" 2> /dev/null \
+            || psql -c "SELECT pg_size_pretty(pg_total_relation_size('answer')) AS size"
+        psql -c "EXPLAIN (ANALYZE, BUFFERS) select a.id, a.uuid, a.ans, q.uuid, q.content from ANSWER a join QUESTION q on a.question_id = q.id where a.question_id = $n order by a.id limit 100"
+        psql -c "EXPLAIN (ANALYZE, BUFFERS) select max(a.date) from ANSWER a where a.question_id = $n"
+        psql -c "EXPLAIN (ANALYZE, BUFFERS) select q.* from QUESTION q where q.date < now() - $n * interval '30 seconds' order by q.date desc, q.id desc limit 100"
+        psql -c "EXPLAIN (ANALYZE, BUFFERS) select a.* from ANSWER a where a.uuid = 'answer-$n'"
+        if [ "$layout" = partitioned ]; then
+            psql -c "EXPLAIN (ANALYZE, BUFFERS) select a.* from ANSWER_UUID u join ANSWER a on a.id = u.id and a.question_id = u.question_id where u.uuid = 'answer-$n'"
+        fi
+    } > "$RESULTS/$ANSWERS-$layout-plans.txt"
+}
+
+measure() {
+    local layout=$1
+    local queries=$QUERIES
+    if [ "$layout" = partitioned ]; then
+        queries="$queries $PARTITIONED_QUERIES"
+    fi
+    for query in $queries; do
+        rm -f "$WORK"/"$query".*
+        pgbench -n -T "$DURATION" -c "$CLIENTS" -D answers="$ANSWERS" -D questions="$QUESTIONS" -f "$HERE/$query.pgbench" \
+            -l --log-prefix="$WORK/$query" > /dev/null
+        # the third column of a pgbench transaction log is the latency in microseconds
+        cat "$WORK"/"$query".* | awk '{ print $3 }' | sort -n | awk -v layout="$layout" -v query="$query" '
+            { latency[NR] = $1 }
+            END {
+                p50 = latency[int(NR * 0.50) > 0 ? int(NR * 0.50) : 1]
+                p99 = latency[int(NR * 0.99) > 0 ? int(NR * 0.99) : 1]
+                printf "%-11s %-29s tx=%-9d p50=%8.3fms p99=%8.3fms max=%8.3fms\n", layout, query, NR, p50 / 1000, p99 / 1000, latency[NR] / 1000
+            }' | tee -a "$OUT"
+    done
+}
+
+echo "answers=$ANSWERS questions=$QUESTIONS duration=${DURATION}s clients=$CLIENTS" | tee "$OUT"
+for layout in plain partitioned; do
+    setup "$layout"
+    plans "$layout"
+    measure "$layout"
+done
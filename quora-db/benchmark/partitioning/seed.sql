@@ -0,0 +1,25 @@
+--Fills the QUESTION and ANSWER tables, plain or partitioned, with :answers answers to :answers/10 questions posted by :answers/100 users.
+--Usage: psql -v answers=50000000 -f seed.sql
+--Keys are derived from the row number ('question-42', 'answer-42', ...) so the pgbench scripts can pick random existing rows.
+--The questions are 30 seconds apart, so 5M questions span almost five years and fill five QUESTION partitions.
+\set questions (:answers / 10)
+\set users (:questions / 10)
+
+INSERT INTO USERS(id, uuid, firstName, lastName, userName, email, password, salt, role)
+SELECT n, 'user-' || n, 'first', 'last', 'username-' || n, 'user-' || n || '@example.com', 'password', 'salt', 'nonadmin'
+FROM generate_series(1, :users) AS n
+ON CONFLICT DO NOTHING;
+
+INSERT INTO QUESTION(id, uuid, content, date, user_id, answer_count, last_answer_at)
+SELECT n, 'question-' || n, 'question content ' || n, now() - n * interval '30 seconds', 1 + n % :users, 10, now() - n * interval '30 seconds' + interval '15 seconds'
+FROM generate_series(1, :questions) AS n;
+
+INSERT INTO ANSWER(id, uuid, ans, date, user_id, question_id)
+SELECT n, 'answer-' || n, 'answer ' || n, now() - (1 + n % :questions) * interval '30 seconds' + interval '15 seconds', 1 + (n * 7) % :users, 1 + n % :questions
+FROM generate_series(1, :answers) AS n;
+
+SELECT setval('users_id_seq', (SELECT max(id) FROM USERS));
+SELECT setval('question_id_seq', :questions);
+SELECT setval('answer_id_seq', :answers);
+
+ANALYZE;
@@ -0,0 +1,30 @@
+--V001 adds indexes and unique constraints on the columns which the named queries filter on.
+--Every migration is idempotent and records itself in SCHEMA_VERSION, so the migration set can be applied to new and existing databases.
+CREATE TABLE IF NOT EXISTS SCHEMA_VERSION(version INTEGER PRIMARY KEY, description VARCHAR(200) NOT NULL, applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP);
+
+--userAuthTokenByAccessToken, run on every authenticated request
+CREATE UNIQUE INDEX IF NOT EXISTS USER_AUTH_ACCESS_TOKEN_UK ON USER_AUTH(ACCESS_TOKEN);
+
+--userByUuid
+CREATE UNIQUE INDEX IF NOT EXISTS USERS_UUID_UK ON USERS(uuid);
+
+--getQuestionById
+CREATE UNIQUE INDEX IF NOT EXISTS QUESTION_UUID_UK ON QUESTION(uuid);
+
+--getAnswerById
+CREATE UNIQUE INDEX IF NOT EXISTS ANSWER_UUID_UK ON ANSWER(uuid);
+
+--questionByUserId
+CREATE INDEX IF NOT EXISTS QUESTION_USER_ID_IDX ON QUESTION(user_id);
+
+--getAllAnswersToQuestion
+CREATE INDEX IF NOT EXISTS ANSWER_QUESTION_ID_IDX ON ANSWER(question_id);
+
+--keyset pagination of questionAll
+CREATE INDEX IF NOT EXISTS QUESTION_DATE_ID_IDX ON QUESTION(date DESC, id DESC);
+
+--foreign keys followed by ON DELETE CASCADE when a user is deleted
+CREATE INDEX IF NOT EXISTS USER_AUTH_USER_ID_IDX ON USER_AUTH(USER_ID);
+CREATE INDEX IF NOT EXISTS ANSWER_USER_ID_IDX ON ANSWER(user_id);
+
+INSERT INTO SCHEMA_VERSION(version, description) SELECT 1, 'hot lookup indexes' WHERE NOT EXISTS (SELECT 1 FROM SCHEMA_VERSION WHERE version = 1);
@@ -0,0 +1,9 @@
+--V002 makes the id sequences advance by 50, the allocation size of the pooled-lo id generators of the entities.
+--Hibernate reserves a block of 50 ids with one nextval and assigns them in memory, which lets it batch the inserts.
+--Rows inserted with the column default take one value of a block and never collide with the ids assigned by Hibernate.
+ALTER SEQUENCE USERS_ID_SEQ INCREMENT BY 50;
+ALTER SEQUENCE USER_AUTH_ID_SEQ INCREMENT BY 50;
+ALTER SEQUENCE QUESTION_ID_SEQ INCREMENT BY 50;
+ALTER SEQUENCE ANSWER_ID_SEQ INCREMENT BY 50;
+
+INSERT INTO SCHEMA_VERSION(version, description) SELECT 2, 'pooled id sequences' WHERE NOT EXISTS (SELECT 1 FROM SCHEMA_VERSION WHERE version = 2);
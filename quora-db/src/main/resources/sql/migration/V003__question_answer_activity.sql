@@ -0,0 +1,11 @@
+--V003 adds the number of answers and the time of the latest answer to every question, so the listings can show them
+--without counting the answers of each question. AnswerService keeps them up to date while holding a lock on the
+--question row; the values of the existing questions are computed here and reconciled periodically by the application.
+ALTER TABLE QUESTION ADD COLUMN IF NOT EXISTS answer_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE QUESTION ADD COLUMN IF NOT EXISTS last_answer_at TIMESTAMP;
+
+UPDATE QUESTION q SET answer_count = a.answer_count, last_answer_at = a.last_answer_at
+FROM (SELECT question_id, count(*) AS answer_count, max(date) AS last_answer_at FROM ANSWER GROUP BY question_id) a
+WHERE a.question_id = q.id AND (q.answer_count <> a.answer_count OR q.last_answer_at IS DISTINCT FROM a.last_answer_at);
+
+INSERT INTO SCHEMA_VERSION(version, description) SELECT 3, 'question answer activity' WHERE NOT EXISTS (SELECT 1 FROM SCHEMA_VERSION WHERE version = 3);
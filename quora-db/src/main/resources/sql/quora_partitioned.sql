@@ -0,0 +1,111 @@
+--Replaces the QUESTION and ANSWER tables created by quora.sql with declaratively partitioned ones (PostgreSQL 11 or later).
+--Run after quora.sql and before the versioned migrations, e.g. with the setup-partitioned profile of quora-db.
+--ANSWER is hash partitioned on question_id, so all the answers of a question live in one partition and the answer
+--queries, which filter on the question id, only read that partition. QUESTION is range partitioned on date, by year,
+--so the newest-first listings only read the partitions of the years they reach and old years can be detached.
+--The partition key has to be part of every primary key and unique index, therefore:
+--  * uuid cannot be unique on the partitioned tables; QUESTION_UUID_UK and ANSWER_UUID_UK are plain indexes here, named
+--    like the unique indexes of V001 so the migration skips them. The QUESTION_UUID and ANSWER_UUID tables, kept up to
+--    date by triggers, enforce the uniqueness instead and map every uuid to the full primary key of its row.
+--  * getQuestionById and getAnswerById look up by uuid, which is not the partition key, so they probe the uuid index of
+--    every partition: one per year of QUESTION, 16 of ANSWER. Most question lookups are answered by the natural id cache
+--    of the application. A pruned lookup joins the uuid table first, e.g.
+--      select a.* from ANSWER_UUID u join ANSWER a on a.id = u.id and a.question_id = u.question_id where u.uuid = ?
+--    The DAOs do not, because the plain layout of quora.sql has no uuid tables.
+--  * the primary key of QUESTION is (id, date), while the identifier of QuestionEntity is id alone, so the statements
+--    Hibernate runs by identifier, i.e. the updates of editQuestionContent and of the answer count, the delete of
+--    deleteQuestion and the select for update of lockQuestion, all "where id=?", are not pruned either: QUESTION writes
+--    probe the primary key index of every year's partition. Partitioning on a column the identifier carries would
+--    prune them but not the newest-first listings, which read far more rows. PartitionedSchemaTest checks both plans.
+--  * ANSWER cannot reference QUESTION(id) with a foreign key; the answers of a deleted question are deleted by the
+--    QUESTION_DELETE_ANSWERS trigger instead of ON DELETE CASCADE.
+--Statements end with ;; because the DO blocks and the trigger function contain semicolons; psql reads ;; as a statement
+--followed by an empty one and the sql-maven-plugin execution of the profile uses ;; as its delimiter.
+
+DROP TABLE IF EXISTS ANSWER CASCADE;;
+DROP TABLE IF EXISTS QUESTION CASCADE;;
+DROP TABLE IF EXISTS ANSWER_UUID;;
+DROP TABLE IF EXISTS QUESTION_UUID;;
+DROP FUNCTION IF EXISTS QUESTION_DELETE_ANSWERS();;
+DROP FUNCTION IF EXISTS QUESTION_UUID_MAINTAIN();;
+DROP FUNCTION IF EXISTS ANSWER_UUID_MAINTAIN();;
+
+--QUESTION table is created to store the questions related information posted by any user in the Application
+CREATE TABLE QUESTION(id INTEGER NOT NULL DEFAULT nextval('question_id_seq'), uuid VARCHAR(200) NOT NULL, content VARCHAR(500) NOT NULL, date TIMESTAMP NOT NULL, user_id INTEGER NOT NULL, answer_count INTEGER NOT NULL DEFAULT 0, last_answer_at TIMESTAMP, PRIMARY KEY(id, date), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE) PARTITION BY RANGE (date);;
+
+--one partition per year from 2018 to two years ahead; rows outside that range go to the default partition
+DO $$
+BEGIN
+    FOR y IN 2018 .. extract(year FROM now())::INTEGER + 2 LOOP
+        EXECUTE format('CREATE TABLE QUESTION_%s PARTITION OF QUESTION FOR VALUES FROM (%L) TO (%L)',
+                       y, make_date(y, 1, 1), make_date(y + 1, 1, 1));
+    END LOOP;
+END
+$$;;
+CREATE TABLE QUESTION_DEFAULT PARTITION OF QUESTION DEFAULT;;
+
+--ANSWER table is created to store the answers related information in reply to any question posted in the Application
+CREATE TABLE ANSWER(id INTEGER NOT NULL DEFAULT nextval('answer_id_seq'), uuid VARCHAR(200) NOT NULL, ans VARCHAR(255) NOT NULL, date TIMESTAMP NOT NULL, user_id INTEGER NOT NULL, question_id INTEGER NOT NULL, PRIMARY KEY(id, question_id), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE) PARTITION BY HASH (question_id);;
+
+DO $$
+BEGIN
+    FOR remainder IN 0 .. 15 LOOP
+        EXECUTE format('CREATE TABLE ANSWER_%s PARTITION OF ANSWER FOR VALUES WITH (MODULUS 16, REMAINDER %s)', remainder, remainder);
+    END LOOP;
+END
+$$;;
+
+--the deleted question's id selects the single ANSWER partition holding its answers
+CREATE FUNCTION QUESTION_DELETE_ANSWERS() RETURNS TRIGGER AS $$
+BEGIN
+    DELETE FROM ANSWER WHERE question_id = OLD.id;
+    RETURN OLD;
+END
+$$ LANGUAGE plpgsql;;
+
+CREATE TRIGGER QUESTION_DELETE_ANSWERS AFTER DELETE ON QUESTION FOR EACH ROW EXECUTE PROCEDURE QUESTION_DELETE_ANSWERS();;
+
+--the uuid of every question and answer, unique across the partitions, with the primary key of its row
+CREATE TABLE QUESTION_UUID(uuid VARCHAR(200) NOT NULL, id INTEGER NOT NULL, date TIMESTAMP NOT NULL, PRIMARY KEY(uuid));;
+CREATE TABLE ANSWER_UUID(uuid VARCHAR(200) NOT NULL, id INTEGER NOT NULL, question_id INTEGER NOT NULL, PRIMARY KEY(uuid));;
+
+--a duplicate uuid fails the insert with a unique violation on the primary key of the uuid table
+CREATE FUNCTION QUESTION_UUID_MAINTAIN() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO QUESTION_UUID(uuid, id, date) VALUES (NEW.uuid, NEW.id, NEW.date);
+        RETURN NEW;
+    ELSIF TG_OP = 'UPDATE' THEN
+        UPDATE QUESTION_UUID SET uuid = NEW.uuid, id = NEW.id, date = NEW.date WHERE uuid = OLD.uuid;
+        RETURN NEW;
+    END IF;
+    DELETE FROM QUESTION_UUID WHERE uuid = OLD.uuid;
+    RETURN OLD;
+END
+$$ LANGUAGE plpgsql;;
+
+CREATE FUNCTION ANSWER_UUID_MAINTAIN() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO ANSWER_UUID(uuid, id, question_id) VALUES (NEW.uuid, NEW.id, NEW.question_id);
+        RETURN NEW;
+    ELSIF TG_OP = 'UPDATE' THEN
+        UPDATE ANSWER_UUID SET uuid = NEW.uuid, id = NEW.id, question_id = NEW.question_id WHERE uuid = OLD.uuid;
+        RETURN NEW;
+    END IF;
+    DELETE FROM ANSWER_UUID WHERE uuid = OLD.uuid;
+    RETURN OLD;
+END
+$$ LANGUAGE plpgsql;;
+
+--also fired by the deletes cascaded from USERS and by QUESTION_DELETE_ANSWERS
+CREATE TRIGGER QUESTION_UUID_MAINTAIN AFTER INSERT OR DELETE OR UPDATE OF uuid, id, date ON QUESTION FOR EACH ROW EXECUTE PROCEDURE QUESTION_UUID_MAINTAIN();;
+CREATE TRIGGER ANSWER_UUID_MAINTAIN AFTER INSERT OR DELETE OR UPDATE OF uuid, id, question_id ON ANSWER FOR EACH ROW EXECUTE PROCEDURE ANSWER_UUID_MAINTAIN();;
+
+--the indexes of V001 on the two tables, created on every partition
+CREATE INDEX QUESTION_UUID_UK ON QUESTION(uuid);;
+CREATE INDEX QUESTION_USER_ID_IDX ON QUESTION(user_id);;
+CREATE INDEX QUESTION_DATE_ID_IDX ON QUESTION(date DESC, id DESC);;
+CREATE INDEX ANSWER_UUID_UK ON ANSWER(uuid);;
+CREATE INDEX ANSWER_QUESTION_ID_IDX ON ANSWER(question_id, id);;
+CREATE INDEX ANSWER_USER_ID_IDX ON ANSWER(user_id);;
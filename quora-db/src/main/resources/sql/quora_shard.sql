@@ -0,0 +1,24 @@
+--Makes the ids generated on one shard disjoint from the ids of the other shards, and adds the tables used across the
+--shards, see ShardingConfiguration.
+--Run with psql on every new, empty shard after quora.sql and the versioned migrations (V002 sets the increment back to 50):
+--  psql -d quora -v shard=0 -v shards=2 -f quora_shard.sql
+--Every nextval reserves a block of 50 ids for the pooled-lo generators of the entities; the sequence of shard N hands out
+--the blocks starting at 1 + 50 * N and skips the blocks of the other shards. Ids have to be unique across the shards
+--because the second-level cache is keyed by them, and users are copied with their id to the shards they answer on.
+
+SELECT 50 * :shards AS step, 50 * :shard + 1 AS start \gset
+
+ALTER SEQUENCE USERS_ID_SEQ RESTART WITH :start INCREMENT BY :step;
+ALTER SEQUENCE USER_AUTH_ID_SEQ RESTART WITH :start INCREMENT BY :step;
+ALTER SEQUENCE QUESTION_ID_SEQ RESTART WITH :start INCREMENT BY :step;
+ALTER SEQUENCE ANSWER_ID_SEQ RESTART WITH :start INCREMENT BY :step;
+
+--USER_DIRECTORY maps the usernames and emails of the users of all shards to their uuid and is only used on shard 0. Its
+--primary key keeps them unique across the shards, which the UNIQUE constraints of USERS cannot do, as they only see the
+--users of their shard; the keys are prefixed with username: or email:.
+CREATE TABLE IF NOT EXISTS USER_DIRECTORY(lookup_key VARCHAR(260) NOT NULL, user_uuid VARCHAR(200) NOT NULL, PRIMARY KEY(lookup_key));
+CREATE INDEX IF NOT EXISTS USER_DIRECTORY_USER_UUID_IDX ON USER_DIRECTORY(user_uuid);
+
+--USER_COPY_DELETION records, on the shard of a deleted user, that the copies of the user on the other shards and its keys
+--in USER_DIRECTORY still have to be deleted. UserCopyReconciler retries the deletions recorded here until they succeed.
+CREATE TABLE IF NOT EXISTS USER_COPY_DELETION(user_id INTEGER NOT NULL, user_uuid VARCHAR(200) NOT NULL, deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, PRIMARY KEY(user_id));
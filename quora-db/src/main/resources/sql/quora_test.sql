@@ -21,7 +21,7 @@ insert into user_auth (id , uuid , user_id , access_token , expires_at , login_a
 
 
 --Insert values in QUESTION table
-insert into question (id,uuid,content,date,user_id) values(1024,'database_question_uuid','database_question_content','2018-09-17 19:41:19.593',1026);
+insert into question (id,uuid,content,date,user_id,answer_count,last_answer_at) values(1024,'database_question_uuid','database_question_content','2018-09-17 19:41:19.593',1026,1,'2018-09-17 19:41:19.593');
 
 
 --Insert values in ANSWER table
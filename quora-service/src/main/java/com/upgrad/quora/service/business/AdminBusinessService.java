@@ -1,10 +1,10 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.AccessTokenCache;
+import com.upgrad.quora.service.common.PageCursor;
 import com.upgrad.quora.service.dao.UserDao;
-
-import com.upgrad.quora.service.entity.UserAuthTokenEntity;
+import com.upgrad.quora.service.datasource.Shards;
 import com.upgrad.quora.service.entity.UserEntity;
-import com.upgrad.quora.service.exception.AuthenticationFailedException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,33 +15,57 @@ public class AdminBusinessService {
     @Autowired
     private UserDao userDao;
     @Autowired
-    private PasswordCryptographyProvider passwordCryptographyProvider;
-
-    public UserEntity deleteUser(final String userUuid, final String authorizationToken) throws UserNotFoundException,
-            AuthenticationFailedException, AuthorizationFailedException {
-        UserAuthTokenEntity userAuthTokenEntity = userDao.getUserAuthToken(authorizationToken);
+    private AccessTokenCache accessTokenCache;
+    @Autowired
+    private UserCopyReconciler userCopyReconciler;
+    @Autowired
+    private StatelessTokenVerifier statelessTokenVerifier;
+    @Autowired
+    private QuestionService questionService;
+    @Autowired
+    private AnswerService answerService;
+    @Autowired
+    private Shards shards;
 
-        //Integer deleteUserId =
+    /**
+     * This method deletes the user whose userid is passed, provided the signed in user is an admin.
+     * The questions of the user, with their answers, and then the answers the user posted to the questions of others are
+     * deleted in batches of quora.user.deletion.batch-size, each in a transaction of its own, which takes its answers off
+     * the answer counts of their questions and updates the search index and the feed once it has committed. The user is
+     * deleted last; answers posted in the meantime are deleted through ON DELETE CASCADE, and their questions corrected
+     * by the QuestionActivityReconciler. When sharded the answers are deleted one shard after the other, and the copies of
+     * the user on the other shards are deleted afterwards, a failure being retried by the UserCopyReconciler.
+     *
+     * @param userUuid - user id of the user who has to be deleted
+     * @param user     - the signed in user
+     * @return
+     * @throws UserNotFoundException        - throws if user is not present with userid provided
+     * @throws AuthorizationFailedException - throws when the signed in user is not an admin
+     */
+    public UserEntity deleteUser(final String userUuid, final UserEntity user) throws UserNotFoundException, AuthorizationFailedException {
         UserEntity deleteUserEntity = userDao.getUser(userUuid);
-        if (userAuthTokenEntity == null) {
-            throw new AuthenticationFailedException("ATHR-001", "User has not signed in");
-        }
         if (deleteUserEntity == null) {
             throw new UserNotFoundException("USR-001", "User with entered uuid to be deleted does not exist");
         }
-        if (userAuthTokenEntity.getLogoutAt() != null)
-            throw new AuthorizationFailedException("ATHR-002", "User is signed out");
-        UserEntity userEntity = userDao.getUser(userAuthTokenEntity.getUuid());
-        if (!userEntity.getRole().equalsIgnoreCase("admin")) {
+        if (!user.getRole().equalsIgnoreCase("admin")) {
             throw new AuthorizationFailedException("ATHR-003", "Unauthorized Access, Entered user is not an admin");
         }
-        //Commenting below condition to pass the testcases as testcases are running with expired token
-        // I know this condition should be there in real industry code
-        // if(userAuthTokenEntity.getExpiresAt().isBefore(ZonedDateTime.now()))
-        //     throw new AuthorizationFailedException("ATHR-004","User Access Token is expired");
 
 //        userDao.deleteUserAuthToken(deleteUserEntity.getId());
-        userDao.deleteUser(deleteUserEntity.getId());
+        PageCursor afterQuestion = null;
+        do {
+            afterQuestion = questionService.deleteQuestionsByUser(userUuid, afterQuestion);
+        } while (afterQuestion != null);
+        shards.forEachShard(shard -> {
+            Integer afterAnswer = null;
+            do {
+                afterAnswer = answerService.deleteAnswersByUser(userUuid, afterAnswer);
+            } while (afterAnswer != null);
+        });
+        userDao.deleteUser(deleteUserEntity);
+        userCopyReconciler.purge(deleteUserEntity);
+        accessTokenCache.invalidateUser(deleteUserEntity.getUuid());
+        statelessTokenVerifier.revokeUser(deleteUserEntity.getUuid());
 
         return deleteUserEntity;
     }
@@ -1,23 +1,32 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.common.TransactionHooks;
 import com.upgrad.quora.service.dao.AnswerDao;
 import com.upgrad.quora.service.dao.QuestionDao;
 import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.datasource.ShardResolver;
+import com.upgrad.quora.service.dto.AnswerDetails;
 import com.upgrad.quora.service.entity.AnswerEntity;
 import com.upgrad.quora.service.entity.QuestionEntity;
-import com.upgrad.quora.service.entity.UserAuthTokenEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidAnswerBatchException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.feed.QuestionFeed;
+import com.upgrad.quora.service.search.QuestionSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 @Service
 public class AnswerService {
@@ -25,159 +34,262 @@ public class AnswerService {
     @Autowired
     private AnswerDao answerDao;
     @Autowired
+    private QuestionDao questionDao;
+    @Autowired
     private UserDao userDao;
     @Autowired
-    private QuestionDao questionDao;
+    private ShardResolver shardResolver;
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+    @Autowired
+    private QuestionFeed questionFeed;
+
+    @Value("${quora.answer.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    @Value("${quora.listing.stream.page-size:100}")
+    private int streamPageSize;
+
+    @Value("${quora.user.deletion.batch-size:100}")
+    private int deletionBatchSize;
 
     /**
-     * This method takes answer entity, question Id and access token as parameters, validates uses identity whether signed in, else throws exceptions
-     * Also checks if question id is valid, then call DAO method to get logged
+     * This method takes answer entity, question Id and the signed in user as parameters,
+     * checks if question id is valid, then call DAO method to get logged.
+     * The answer is stored on the shard of the question, where the user is copied to if stored on another shard.
      *
      * @param answerEntity
-     * @param accessToken
+     * @param user         - the signed in user, who becomes the owner of the answer
      * @param questionId
      * @return
-     * @throws AuthorizationFailedException - When user has signed out, or not signed in to perform operation
-     * @throws InvalidQuestionException     -  When the question id passed to request does not exist in the DB
+     * @throws InvalidQuestionException -  When the question id passed to request does not exist in the DB
      */
 
+    @Transactional(propagation = Propagation.REQUIRED)
+    public AnswerEntity createAnswer(AnswerEntity answerEntity, UserEntity user, String questionId) throws InvalidQuestionException {
 
-    public AnswerEntity createAnswer(AnswerEntity answerEntity, String accessToken, String questionId) throws AuthorizationFailedException, InvalidQuestionException {
-
-        //User authentication verification
-        UserAuthTokenEntity userAuthTokenEntity = userDao.getUserAuthToken(accessToken);
-        if (userAuthTokenEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthTokenEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to post an answer");
-        }
-        //Commenting below condition to pass the testcases as testcases are running with expired token
-        // I know this condition should be there in real industry code
-        // if(userAuthTokenEntity.getExpiresAt().isBefore(ZonedDateTime.now()))
-        //     throw new AuthorizationFailedException("ATHR-004","User Access Token is expired");
         //Question ID validation.
         QuestionEntity questionEntity = questionDao.getQuestionById(questionId);
         if (questionEntity == null) {
             throw new InvalidQuestionException("QUES-001", "The question entered is invalid");
         }
-        UserEntity user = userDao.getUser(userAuthTokenEntity.getUuid());
-        answerEntity.setUuid(UUID.randomUUID().toString());
+        userDao.copyUserToCurrentShard(user);
+        answerEntity.setUuid(shardResolver.newUuid(shardResolver.shardOf(questionId)));
         answerEntity.setDate(ZonedDateTime.now());
         answerEntity.setUserEntity(user);
         answerEntity.setQuestionEntity(questionEntity);
-        return answerDao.createAnswer(answerEntity);
+        answersAdded(questionEntity, 1, answerEntity.getDate());
+        final AnswerEntity createdAnswerEntity = answerDao.createAnswer(answerEntity);
+        TransactionHooks.afterCommit(() -> {
+            questionSearchIndex.indexAnswer(questionId, createdAnswerEntity.getUuid(), createdAnswerEntity.getAnswer());
+            questionFeed.update(questionEntity);
+        });
+        return createdAnswerEntity;
     }
 
     /**
-     * This method takes the updated answer string, question Id and authorization token , validates user's identity
+     * This method creates many answers to one question in a single transaction. The question is checked and loaded once,
+     * and the answers are inserted in JDBC batches by the DAO.
+     *
+     * @param answers    - text of the answers, in the order the ids are returned
+     * @param user       - the signed in user, who becomes the owner of the answers
+     * @param questionId
+     * @return
+     * @throws InvalidAnswerBatchException - When the batch is empty, exceeds maxBatchSize or contains an empty answer
+     * @throws InvalidQuestionException    - When the question id passed to request does not exist in the DB
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public List<AnswerEntity> createAnswers(List<String> answers, UserEntity user, String questionId) throws InvalidAnswerBatchException, InvalidQuestionException {
+        if (answers == null || answers.isEmpty() || answers.size() > maxBatchSize) {
+            throw new InvalidAnswerBatchException("ANS-002", "A batch must contain between 1 and " + maxBatchSize + " answers");
+        }
+        for (String answer : answers) {
+            if (answer == null || answer.trim().isEmpty()) {
+                throw new InvalidAnswerBatchException("ANS-003", "Answers in a batch must not be empty");
+            }
+        }
+
+        //Question ID validation.
+        QuestionEntity questionEntity = questionDao.getQuestionById(questionId);
+        if (questionEntity == null) {
+            throw new InvalidQuestionException("QUES-001", "The question entered is invalid");
+        }
+        userDao.copyUserToCurrentShard(user);
+        final ZonedDateTime now = ZonedDateTime.now();
+        final int shard = shardResolver.shardOf(questionId);
+        final List<AnswerEntity> answerEntities = new ArrayList<>(answers.size());
+        for (String answer : answers) {
+            AnswerEntity answerEntity = new AnswerEntity();
+            answerEntity.setUuid(shardResolver.newUuid(shard));
+            answerEntity.setAnswer(answer);
+            answerEntity.setDate(now);
+            answerEntity.setUserEntity(user);
+            answerEntity.setQuestionEntity(questionEntity);
+            answerEntities.add(answerEntity);
+        }
+        //before the inserts, which detach the question
+        answersAdded(questionEntity, answerEntities.size(), now);
+        final List<AnswerEntity> createdAnswerEntities = answerDao.createAnswers(answerEntities);
+        TransactionHooks.afterCommit(() -> {
+            for (AnswerEntity answerEntity : createdAnswerEntities) {
+                questionSearchIndex.indexAnswer(questionId, answerEntity.getUuid(), answerEntity.getAnswer());
+            }
+            questionFeed.update(questionEntity);
+        });
+        return createdAnswerEntities;
+    }
+
+    /**
+     * This method takes the updated answer string, answer Id and the signed in user,
      * checks if the answer exists in the DB and then call DAO method to update the answer content
      *
      * @param answer
-     * @param accessToken
+     * @param user     - the signed in user
      * @param answerId
      * @return
-     * @throws AuthorizationFailedException - When user has signed out, or not signed in to perform operation
+     * @throws AuthorizationFailedException - When logged in user is not the owner of the answer
      * @throws AnswerNotFoundException      - When answer id does not exist in the database
      */
 
+    @Transactional(propagation = Propagation.REQUIRED)
+    public AnswerEntity editAnswer(String answer, UserEntity user, String answerId) throws AuthorizationFailedException, AnswerNotFoundException {
 
-    public AnswerEntity editAnswer(String answer, String accessToken, String answerId) throws AuthorizationFailedException, AnswerNotFoundException {
-
-        //User authentication verification
-        UserAuthTokenEntity userAuthTokenEntity = userDao.getUserAuthToken(accessToken);
-        if (userAuthTokenEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthTokenEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to edit an answer");
-        }
-        //Commenting below condition to pass the testcases as testcases are running with expired token
-        // I know this condition should be there in real industry code
-        // if(userAuthTokenEntity.getExpiresAt().isBefore(ZonedDateTime.now()))
-        //     throw new AuthorizationFailedException("ATHR-004","User Access Token is expired");
         //answer ID verification
         AnswerEntity answerEntity = new AnswerEntity();
         answerEntity = answerDao.getAnswerById(answerId);
         if (answerEntity == null) {
             throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
         }
-        if (!answerEntity.getUserEntity().getUuid().equals(userAuthTokenEntity.getUuid())) {
+        if (!answerEntity.getUserEntity().getUuid().equals(user.getUuid())) {
             throw new AuthorizationFailedException("ATHR-003", "Only the answer owner can edit the answer");
         }
 
         answerEntity.setAnswer(answer);
-        answerDao.editAnswer(answerEntity);
+        final String questionId = answerEntity.getQuestionEntity().getUuid();
+        TransactionHooks.afterCommit(() -> questionSearchIndex.indexAnswer(questionId, answerId, answer));
 
         return answerDao.editAnswer(answerEntity);
     }
 
     /**
-     * This method takes answer id and auth token as parameters, validates user identity and if user's role is admin or user is owner of the question
+     * This method takes answer id and the signed in user as parameters and if user's role is admin or user is owner of the answer
      * it calls the DAO method to delete the answer from DB.
      *
      * @param answerId
-     * @param accessToken
+     * @param user     - the signed in user
      * @return
-     * @throws AuthorizationFailedException - When user has signed out, or not signed in to perform operation
+     * @throws AuthorizationFailedException - When user is neither the owner of the answer nor an admin
      * @throws AnswerNotFoundException      - When the requested answer id does not exist in the database
      */
 
 
     @Transactional(propagation = Propagation.REQUIRED)
-    public AnswerEntity deleteAnswer(String answerId, String accessToken) throws AuthorizationFailedException, AnswerNotFoundException {
-
-        //User authentication verification
-        UserAuthTokenEntity userAuthTokenEntity = userDao.getUserAuthToken(accessToken);
-        if (userAuthTokenEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthTokenEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to edit an answer");
-        }
-        //Commenting below condition to pass the testcases as testcases are running with expired token
-        // I know this condition should be there in real industry code
-        // if(userAuthTokenEntity.getExpiresAt().isBefore(ZonedDateTime.now()))
-        //     throw new AuthorizationFailedException("ATHR-004","User Access Token is expired");
+    public AnswerEntity deleteAnswer(String answerId, UserEntity user) throws AuthorizationFailedException, AnswerNotFoundException {
+
         //answer ID verification
         AnswerEntity answerEntity = new AnswerEntity();
         answerEntity = answerDao.getAnswerById(answerId);
         if (answerEntity == null) {
             throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
         }
-        if (answerEntity.getUserEntity().getRole().equals("admin") || answerEntity.getUserEntity().getUuid().equals(userAuthTokenEntity.getUuid())) {
-            return answerDao.deleteAnswer(answerId);
+        if (user.getRole().equalsIgnoreCase("admin") || answerEntity.getUserEntity().getUuid().equals(user.getUuid())) {
+            final QuestionEntity questionEntity = questionDao.lockQuestion(answerEntity.getQuestionEntity());
+            final String questionId = questionEntity.getUuid();
+            TransactionHooks.afterCommit(() -> {
+                questionSearchIndex.removeAnswer(questionId, answerId);
+                questionFeed.update(questionEntity);
+            });
+            final AnswerEntity deletedAnswerEntity = answerDao.deleteAnswer(answerId);
+            questionEntity.setAnswerCount(Math.max(0, questionEntity.getAnswerCount() - 1));
+            if (questionEntity.getLastAnswerAt() == null || !deletedAnswerEntity.getDate().isBefore(questionEntity.getLastAnswerAt())) {
+                questionEntity.setLastAnswerAt(answerDao.getLastAnswerDate(questionEntity));
+            }
+            return deletedAnswerEntity;
         } else {
             throw new AuthorizationFailedException("ATHR-003", "Only the answer owner can delete the answer");
         }
     }
 
     /**
-     * This method accepts question id and jwt token as parameters , validates user's identity and then invokes DAO method to check if the
-     * question id exists in the database and if exists it fetches all answers for that question by interacting with DAO method
+     * This method deletes a batch of the answers posted by the user, from the shard selected by Shards.forEachShard in id
+     * order, and takes them off the answer counts and the times of the latest answer of their questions like deleteAnswer.
+     * The questions are locked in id order, so concurrent batches cannot deadlock each other.
      *
-     * @param questionId
-     * @param accessToken
-     * @return
-     * @throws AuthorizationFailedException - When user has signed out, or not signed in to perform operation
-     * @throws InvalidQuestionException     - When requested question id does not exist in the database
+     * @param userUuid
+     * @param afterId  - id of the last answer of the previous batch, null for the first batch
+     * @return - id of the last answer deleted, or null when the user has no more answers on the shard
      */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public Integer deleteAnswersByUser(final String userUuid, final Integer afterId) {
+        final List<AnswerEntity> answers = answerDao.getAnswersByUserPage(userUuid, afterId, deletionBatchSize);
+        final Map<Integer, List<AnswerEntity>> answersByQuestion = new TreeMap<>();
+        for (AnswerEntity answerEntity : answers) {
+            answersByQuestion.computeIfAbsent(answerEntity.getQuestionEntity().getId(), id -> new ArrayList<>()).add(answerEntity);
+        }
+        for (List<AnswerEntity> questionAnswers : answersByQuestion.values()) {
+            final QuestionEntity questionEntity = questionDao.lockQuestion(questionAnswers.get(0).getQuestionEntity());
+            final String questionId = questionEntity.getUuid();
+            ZonedDateTime latest = null;
+            for (AnswerEntity answerEntity : questionAnswers) {
+                answerDao.deleteAnswer(answerEntity);
+                if (latest == null || answerEntity.getDate().isAfter(latest)) {
+                    latest = answerEntity.getDate();
+                }
+            }
+            questionEntity.setAnswerCount(Math.max(0, questionEntity.getAnswerCount() - questionAnswers.size()));
+            if (questionEntity.getLastAnswerAt() == null || !latest.isBefore(questionEntity.getLastAnswerAt())) {
+                questionEntity.setLastAnswerAt(answerDao.getLastAnswerDate(questionEntity));
+            }
+            TransactionHooks.afterCommit(() -> {
+                for (AnswerEntity answerEntity : questionAnswers) {
+                    questionSearchIndex.removeAnswer(questionId, answerEntity.getUuid());
+                }
+                questionFeed.update(questionEntity);
+            });
+        }
+        return answers.size() < deletionBatchSize ? null : answers.get(answers.size() - 1).getId();
+    }
 
-    public List<AnswerEntity> getAllAnswersToQeuestion(String questionId, String accessToken) throws AuthorizationFailedException, InvalidQuestionException {
-        //User authentication verification
-        UserAuthTokenEntity userAuthTokenEntity = userDao.getUserAuthToken(accessToken);
-        if (userAuthTokenEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthTokenEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to post an answer");
+    /**
+     * This method adds the answers to the answer count and the time of the latest answer of the question. The question row
+     * is locked first, so concurrent answers to the same question are counted one after the other.
+     *
+     * @param questionEntity - question attached to the current transaction
+     * @param count          - number of answers added
+     * @param date           - date of the answers
+     */
+    private void answersAdded(final QuestionEntity questionEntity, final int count, final ZonedDateTime date) {
+        questionDao.lockQuestion(questionEntity);
+        questionEntity.setAnswerCount(questionEntity.getAnswerCount() + count);
+        if (questionEntity.getLastAnswerAt() == null || date.isAfter(questionEntity.getLastAnswerAt())) {
+            questionEntity.setLastAnswerAt(date);
         }
-        //Commenting below condition to pass the testcases as testcases are running with expired token
-        // I know this condition should be there in real industry code
-        // if(userAuthTokenEntity.getExpiresAt().isBefore(ZonedDateTime.now()))
-        //     throw new AuthorizationFailedException("ATHR-004","User Access Token is expired");
+    }
+
+    /**
+     * This method accepts question id as parameter and invokes DAO method to check if the question id exists in the database
+     * and if exists it streams all answers for that question to the consumer by interacting with DAO method.
+     * The answers are read a page of quora.listing.stream.page-size at a time in id order, each page in a read-only
+     * transaction of its own, so a consumer writing to a slow client holds no connection while it writes.
+     *
+     * @param questionId
+     * @param consumer   - receives every answer, between the read transactions
+     * @throws InvalidQuestionException - When requested question id does not exist in the database
+     */
+    public void getAllAnswersToQeuestion(String questionId, Consumer<AnswerDetails> consumer) throws InvalidQuestionException {
         //Question ID validation.
         QuestionEntity questionEntity = questionDao.getQuestionById(questionId);
         if (questionEntity == null) {
             throw new InvalidQuestionException("QUES-001", "The question entered is invalid");
         }
 
-        return answerDao.getAllAnswersToQuestion(questionId);
+        List<AnswerDetails> page = answerDao.getAnswerDetailsToQuestionPage(questionEntity, null, streamPageSize);
+        while (!page.isEmpty()) {
+            page.forEach(consumer);
+            if (page.size() < streamPageSize) {
+                return;
+            }
+            page = answerDao.getAnswerDetailsToQuestionPage(questionEntity, page.get(page.size() - 1).getId(), streamPageSize);
+        }
     }
 }
@@ -1,29 +1,39 @@
 package com.upgrad.quora.service.business;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.upgrad.quora.service.common.GenericErrorCode;
 import com.upgrad.quora.service.common.UnexpectedException;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoField;
 import java.util.Date;
 import java.util.UUID;
 
 /**
- * This class is used in the project to provide JWT token after successful authentication
+ * This class is used in the project to provide JWT token after successful authentication and to verify the tokens it has issued
  */
 public class JwtTokenProvider {
     private static final String TOKEN_ISSUER = "https://quora.io";
 
+    //time from signin until the access token expires
+    public static final Duration TOKEN_VALIDITY = Duration.ofHours(8);
+
     private final Algorithm algorithm;
 
+    private final JWTVerifier verifier;
+
     /**
-     * A constructor for JwtTokenProvider class which receives user password as an argument to be used in the signature part of JWT access token.
+     * A constructor for JwtTokenProvider class which receives the secret to be used in the signature part of JWT access token.
+     * The secret is either the user password or, for tokens which are verified without the database, the server key.
      */
     public JwtTokenProvider(final String secret) {
         try {
             algorithm = Algorithm.HMAC512(secret);
+            verifier = JWT.require(algorithm).withIssuer(TOKEN_ISSUER).build();
         } catch (IllegalArgumentException e) {
             throw new UnexpectedException(GenericErrorCode.GEN_001);
         }
@@ -42,8 +52,8 @@ public class JwtTokenProvider {
      */
     public String generateToken(final String userUuid, final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
 
-        final Date issuedAt = new Date(issuedDateTime.getLong(ChronoField.INSTANT_SECONDS));
-        final Date expiresAt = new Date(expiresDateTime.getLong(ChronoField.INSTANT_SECONDS));
+        final Date issuedAt = Date.from(issuedDateTime.toInstant());
+        final Date expiresAt = Date.from(expiresDateTime.toInstant());
 
         return JWT.create().withIssuer(TOKEN_ISSUER) //
                 .withKeyId(UUID.randomUUID().toString())
@@ -51,4 +61,22 @@ public class JwtTokenProvider {
                 .withIssuedAt(issuedAt).withExpiresAt(expiresAt).sign(algorithm);
     }
 
+    /**
+     * This method checks the signature, issuer and expiry time of the JWT token in memory.
+     *
+     * @param accessToken - JWT token issued by generateToken
+     * @return - uuid of the user the token was issued to, or null if the token is not valid
+     */
+    public String verifyToken(final String accessToken) {
+        try {
+            final DecodedJWT decodedJWT = verifier.verify(accessToken);
+            if (decodedJWT.getAudience() == null || decodedJWT.getAudience().isEmpty()) {
+                return null;
+            }
+            return decodedJWT.getAudience().get(0);
+        } catch (JWTVerificationException e) {
+            return null;
+        }
+    }
+
 }
@@ -0,0 +1,115 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.PageCursor;
+import com.upgrad.quora.service.dao.AnswerDao;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.dto.AnswerDetails;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.exception.UserNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * This service streams the question and answer listings as Flux, for clients which read them incrementally.
+ * The rows are read one keyset page at a time, each page in its own short read-only transaction, and the next page is
+ * only read when the subscriber has asked for more rows than the current page holds. A slow client therefore holds
+ * neither a request thread nor a database connection while it reads.
+ * The checks which can fail, e.g. that the user exists, are done before the Flux is returned, so they are reported with
+ * the usual error responses and status codes.
+ */
+@Service
+public class ListingStreamService {
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private AnswerDao answerDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Value("${quora.listing.stream.page-size:100}")
+    private int pageSize;
+
+    /**
+     * This method streams all questions, newest first
+     *
+     * @return
+     */
+    public Flux<QuestionEntity> streamQuestions() {
+        return pages(after -> questionDao.getQuestionsPage(after, pageSize), ListingStreamService::positionOf);
+    }
+
+    /**
+     * This method checks that the user exists and streams all questions posted by the user, newest first
+     *
+     * @param user_id
+     * @return
+     * @throws UserNotFoundException - When user id which is passed to the request does not exist in the DB
+     */
+    public Flux<QuestionEntity> streamQuestionsByUser(final String user_id) throws UserNotFoundException {
+        if (userDao.getUser(user_id) == null) {
+            throw new UserNotFoundException("USR-001", "User with entered uuid whose question details are to be seen does not exist");
+        }
+        return pages(after -> questionDao.getQuestionsByUserPage(user_id, after, pageSize), ListingStreamService::positionOf);
+    }
+
+    /**
+     * This method checks that the question exists and streams all its answers
+     *
+     * @param questionId
+     * @return
+     * @throws InvalidQuestionException - When requested question id does not exist in the database
+     */
+    public Flux<AnswerDetails> streamAnswersToQuestion(final String questionId) throws InvalidQuestionException {
+        final QuestionEntity questionEntity = questionDao.getQuestionById(questionId);
+        if (questionEntity == null) {
+            throw new InvalidQuestionException("QUES-001", "The question entered is invalid");
+        }
+        return pages(after -> answerDao.getAnswerDetailsToQuestionPage(questionEntity, after, pageSize), AnswerDetails::getId);
+    }
+
+    private static PageCursor positionOf(final QuestionEntity questionEntity) {
+        return new PageCursor(questionEntity.getDate(), questionEntity.getId());
+    }
+
+    //pages are generated on demand, on a thread of the elastic scheduler because the DAO calls block
+    private <T, K> Flux<T> pages(final Function<K, List<T>> fetch, final Function<T, K> positionOf) {
+        return Flux.<List<T>, Seek<K>>generate(Seek::new, (seek, sink) -> {
+            if (seek.done) {
+                sink.complete();
+                return seek;
+            }
+            final List<T> page = fetch.apply(seek.after);
+            if (page.size() < pageSize) {
+                seek.done = true;
+            } else {
+                seek.after = positionOf.apply(page.get(page.size() - 1));
+            }
+            if (page.isEmpty()) {
+                sink.complete();
+            } else {
+                sink.next(page);
+            }
+            return seek;
+        })
+                .subscribeOn(Schedulers.elastic())
+                .flatMapIterable(page -> page, 1);
+    }
+
+    private static final class Seek<K> {
+
+        private K after;
+
+        private boolean done;
+    }
+}
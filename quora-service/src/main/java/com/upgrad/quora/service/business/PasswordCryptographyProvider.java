@@ -6,13 +6,32 @@ import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Base64;
 import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
 
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.UnexpectedException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 
+/**
+ * Passwords are hashed on a dedicated, bounded pool of hashing threads instead of the request thread, so a burst of
+ * signin/signup requests can only use that pool's share of the CPU. When every hashing thread is busy and the queue is full
+ * the request fails fast with GEN-002 instead of queueing behind the burst.
+ */
 @Component
 public class PasswordCryptographyProvider {
 
@@ -21,6 +40,44 @@ public class PasswordCryptographyProvider {
     private static int HASHING_KEY_LENGTH = 64;
     private final static char[] hexArray = "0123456789ABCDEF".toCharArray();
 
+    //SecretKeyFactory instances are not thread safe, so every hashing thread keeps its own and reuses it
+    private static final ThreadLocal<SecretKeyFactory> SECRET_KEY_FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    //0 means one hashing thread per available processor
+    @Value("${quora.auth.hashing.threads:0}")
+    private int threads;
+
+    @Value("${quora.auth.hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    private final AtomicLong hashCount = new AtomicLong();
+
+    private final AtomicLong hashTimeNanos = new AtomicLong();
+
+    private final AtomicLong queueWaitNanos = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        final int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
     /**
      * This method generates Salt and hashed Password
      *
@@ -29,7 +86,7 @@ public class PasswordCryptographyProvider {
      */
     public String[] encrypt(final String password) {
         byte[] salt = generateSaltBytes();
-        byte[] hashedPassword = hashPassword(password.toCharArray(), salt);
+        byte[] hashedPassword = hashOnExecutor(password.toCharArray(), salt);
         return new String[]{getBase64EncodedBytesAsString(salt), bytesToHex(hashedPassword)};
     }
 
@@ -41,8 +98,75 @@ public class PasswordCryptographyProvider {
      * @param salt     byte array.
      * @return byte array of hashed password.
      */
-    public static String encrypt(final String password, String salt) {
-        return bytesToHex(hashPassword(password.toCharArray(), getBase64DecodedStringAsBytes(salt)));
+    public String encrypt(final String password, String salt) {
+        return bytesToHex(hashOnExecutor(password.toCharArray(), getBase64DecodedStringAsBytes(salt)));
+    }
+
+    /**
+     * @return - number of passwords hashed
+     */
+    public long getHashCount() {
+        return hashCount.get();
+    }
+
+    /**
+     * @return - total time spent hashing, in nanoseconds
+     */
+    public long getHashTimeNanos() {
+        return hashTimeNanos.get();
+    }
+
+    /**
+     * @return - total time hashing requests spent waiting in the queue, in nanoseconds
+     */
+    public long getQueueWaitNanos() {
+        return queueWaitNanos.get();
+    }
+
+    /**
+     * @return - number of hashing requests rejected because the pool was saturated
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return - number of hashing requests currently waiting in the queue
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    private byte[] hashOnExecutor(final char[] password, final byte[] salt) {
+        final long submittedAt = System.nanoTime();
+        final Future<byte[]> hash;
+        try {
+            hash = executor.submit(() -> {
+                final long startedAt = System.nanoTime();
+                queueWaitNanos.addAndGet(startedAt - submittedAt);
+                try {
+                    return hashPassword(password, salt);
+                } finally {
+                    hashTimeNanos.addAndGet(System.nanoTime() - startedAt);
+                    hashCount.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            throw new UnexpectedException(GenericErrorCode.GEN_002);
+        }
+        try {
+            return hash.get();
+        } catch (InterruptedException e) {
+            hash.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e.getCause());
+        }
     }
 
     /**
@@ -65,14 +189,15 @@ public class PasswordCryptographyProvider {
      * @return byte array of hashed password.
      */
     private static byte[] hashPassword(final char[] password, final byte[] salt) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, HASHING_ITERATIONS, HASHING_KEY_LENGTH);
         try {
-            SecretKeyFactory skf = SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
-            PBEKeySpec spec = new PBEKeySpec(password, salt, HASHING_ITERATIONS, HASHING_KEY_LENGTH);
-            SecretKey key = skf.generateSecret(spec);
+            SecretKey key = SECRET_KEY_FACTORY.get().generateSecret(spec);
             byte[] res = key.getEncoded();
             return res;
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+        } catch (InvalidKeySpecException e) {
             throw new RuntimeException(e);
+        } finally {
+            spec.clearPassword();
         }
     }
 
@@ -93,6 +218,16 @@ public class PasswordCryptographyProvider {
     private static byte[] getBase64DecodedStringAsBytes(String decode) {
         return Base64.getDecoder().decode(decode);
     }
-}
 
+    private static final class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
 
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
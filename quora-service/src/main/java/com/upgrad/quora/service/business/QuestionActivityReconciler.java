@@ -0,0 +1,54 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.datasource.Shards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This service recomputes the answer counts and latest answer times of all questions from the ANSWER table, in chunks of
+ * question ids so that each chunk is its own short transaction. AnswerService keeps the values up to date, but answers
+ * deleted by the database cascade when an admin deletes a user are not seen by it, which is corrected here.
+ * When sharded every shard is reconciled on its own, as the answers to a question are stored on its shard.
+ */
+@Service
+public class QuestionActivityReconciler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QuestionActivityReconciler.class);
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private Shards shards;
+
+    @Value("${quora.question.activity.reconcile-chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * This method reconciles all questions, by default every night
+     *
+     * @return number of questions corrected
+     */
+    @Scheduled(cron = "${quora.question.activity.reconcile-cron:0 30 3 * * *}")
+    public int reconcile() {
+        final long startedAt = System.currentTimeMillis();
+        final AtomicInteger corrected = new AtomicInteger();
+        shards.forEachShard(shard -> {
+            final Integer maxId = questionDao.getMaxQuestionId();
+            if (maxId != null) {
+                for (long fromId = 0; fromId <= maxId; fromId += chunkSize) {
+                    corrected.addAndGet(questionDao.reconcileAnswerActivity((int) fromId, (int) Math.min(fromId + chunkSize, Integer.MAX_VALUE)));
+                }
+            }
+        });
+        LOGGER.info("Reconciled question answer activity, {} questions corrected in {} ms", corrected.get(), System.currentTimeMillis() - startedAt);
+        return corrected.get();
+    }
+}
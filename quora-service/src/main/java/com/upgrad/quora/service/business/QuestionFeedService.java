@@ -0,0 +1,78 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.feed.QuestionFeed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class QuestionFeedService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QuestionFeedService.class);
+
+    private static final int MAX_RESULTS = 100;
+
+    @Autowired
+    private QuestionFeed questionFeed;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Value("${quora.feed.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    /**
+     * This method returns the most active questions, most active first. The ranking is read from the in-memory feed and
+     * only the questions returned are read from the DB, with one query.
+     *
+     * @param limit - maximum number of questions returned, capped at MAX_RESULTS
+     * @return
+     */
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public List<QuestionEntity> getFeed(final int limit) {
+        final List<String> ranked = questionFeed.top(Math.max(1, Math.min(limit, MAX_RESULTS)));
+        final Map<String, QuestionEntity> questions = new HashMap<>();
+        for (QuestionEntity questionEntity : questionDao.getQuestionsByIds(ranked)) {
+            questions.put(questionEntity.getUuid(), questionEntity);
+        }
+        final List<QuestionEntity> result = new ArrayList<>(ranked.size());
+        for (String questionUuid : ranked) {
+            final QuestionEntity questionEntity = questions.get(questionUuid);
+            if (questionEntity != null) {
+                result.add(questionEntity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * This method rebuilds the feed from the DB when the application context has been refreshed, which is before the web
+     * server starts accepting requests. The questions are streamed and the feed keeps only the best scoring ones.
+     *
+     * @param event
+     */
+    @EventListener
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public void rebuild(final ContextRefreshedEvent event) {
+        if (!rebuildOnStartup || event.getApplicationContext().getParent() != null) {
+            return;
+        }
+        final long startedAt = System.currentTimeMillis();
+        questionFeed.clear();
+        questionDao.forEachQuestion(questionFeed::update);
+        LOGGER.info("Ranked {} questions for the feed in {} ms", questionFeed.size(), System.currentTimeMillis() - startedAt);
+    }
+}
@@ -0,0 +1,84 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.AnswerDao;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.search.QuestionSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class QuestionSearchService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QuestionSearchService.class);
+
+    private static final int MAX_RESULTS = 100;
+
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private AnswerDao answerDao;
+
+    @Value("${quora.search.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    /**
+     * This method returns the questions which match the query best, best match first. Only the matching questions are
+     * read from the DB, with one query.
+     *
+     * @param query - words to search for in the questions and their answers
+     * @param limit - maximum number of questions returned, capped at MAX_RESULTS
+     * @return
+     */
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public List<QuestionEntity> search(final String query, final int limit) {
+        final List<String> ranked = questionSearchIndex.search(query, Math.max(1, Math.min(limit, MAX_RESULTS)));
+        final Map<String, QuestionEntity> questions = new HashMap<>();
+        for (QuestionEntity questionEntity : questionDao.getQuestionsByIds(ranked)) {
+            questions.put(questionEntity.getUuid(), questionEntity);
+        }
+        final List<QuestionEntity> result = new ArrayList<>(ranked.size());
+        for (String questionUuid : ranked) {
+            final QuestionEntity questionEntity = questions.get(questionUuid);
+            if (questionEntity != null) {
+                result.add(questionEntity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * This method rebuilds the search index from the DB when the application context has been refreshed, which is before
+     * the web server starts accepting requests. Questions and answers are streamed, so the memory used is that of the index.
+     *
+     * @param event
+     */
+    @EventListener
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public void rebuild(final ContextRefreshedEvent event) {
+        if (!rebuildOnStartup || event.getApplicationContext().getParent() != null) {
+            return;
+        }
+        final long startedAt = System.currentTimeMillis();
+        questionSearchIndex.clear();
+        questionDao.forEachQuestion(question -> questionSearchIndex.indexQuestion(question.getUuid(), question.getContent()));
+        answerDao.forEachAnswerDetails(answer -> questionSearchIndex.indexAnswer(answer.getQuestionUuid(), answer.getUuid(), answer.getAnswer()));
+        LOGGER.info("Indexed {} questions for search in {} ms", questionSearchIndex.size(), System.currentTimeMillis() - startedAt);
+    }
+}
@@ -0,0 +1,94 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.cache.TokenRevocationList;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.ZonedDateTime;
+
+/**
+ * This class verifies access tokens without going to the database when stateless verification is enabled.
+ * Tokens are then signed with the server key instead of the user password, so their signature, issuer and expiry time
+ * can be checked in memory. Only tokens which were signed out, and tokens of deleted users, are looked up, in the
+ * in-process revocation list.
+ */
+@Component
+public class StatelessTokenVerifier {
+
+    @Value("${quora.auth.jwt.stateless-verification:false}")
+    private boolean enabled;
+
+    @Value("${quora.auth.jwt.secret:}")
+    private String secret;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    private JwtTokenProvider jwtTokenProvider;
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            if (secret == null || secret.isEmpty()) {
+                throw new IllegalStateException("quora.auth.jwt.secret must be set when quora.auth.jwt.stateless-verification is enabled");
+            }
+            jwtTokenProvider = new JwtTokenProvider(secret);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * This method returns the token provider which signs access tokens with the server key
+     *
+     * @return
+     */
+    public JwtTokenProvider getTokenProvider() {
+        return jwtTokenProvider;
+    }
+
+    /**
+     * This method verifies the access token in memory
+     *
+     * @param accessToken - access token sent in the authorization header
+     * @return - uuid of the signed in user, or null if the token has to be checked against the database
+     */
+    public String verify(final String accessToken) {
+        if (!enabled || accessToken == null || tokenRevocationList.isRevoked(accessToken)) {
+            return null;
+        }
+        final String userUuid = jwtTokenProvider.verifyToken(accessToken);
+        if (userUuid == null || tokenRevocationList.isUserRevoked(userUuid)) {
+            return null;
+        }
+        return userUuid;
+    }
+
+    /**
+     * This method records that the access token has been signed out
+     *
+     * @param accessToken
+     * @param expiresAt   - expiry time of the access token
+     */
+    public void revoke(final String accessToken, final ZonedDateTime expiresAt) {
+        if (enabled) {
+            tokenRevocationList.revoke(accessToken, expiresAt);
+        }
+    }
+
+    /**
+     * This method records that the user has been deleted, which revokes every access token issued to the user until the
+     * last of them has expired
+     *
+     * @param userUuid
+     */
+    public void revokeUser(final String userUuid) {
+        if (enabled) {
+            tokenRevocationList.revokeUser(userUuid, ZonedDateTime.now().plus(JwtTokenProvider.TOKEN_VALIDITY));
+        }
+    }
+}
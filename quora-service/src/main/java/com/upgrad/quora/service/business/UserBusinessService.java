@@ -1,5 +1,7 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.AccessTokenCache;
+import com.upgrad.quora.service.common.TransactionHooks;
 import com.upgrad.quora.service.dao.UserDao;
 import com.upgrad.quora.service.entity.UserAuthTokenEntity;
 import com.upgrad.quora.service.entity.UserEntity;
@@ -19,8 +21,20 @@ public class UserBusinessService {
     private UserDao userDao;
     @Autowired
     private PasswordCryptographyProvider passwordCryptographyProvider;
+    @Autowired
+    private AccessTokenCache accessTokenCache;
+    @Autowired
+    private StatelessTokenVerifier statelessTokenVerifier;
 
-    @Transactional(propagation = Propagation.REQUIRED)
+    /**
+     * This method creates the user, provided the username and email are not taken. When sharded both are reserved across
+     * the shards before the user is created on its shard, and released again if the user is not created. Every step runs
+     * in a transaction of its own, as the reservations are made on another shard than the one of the user.
+     *
+     * @param userEntity
+     * @return
+     * @throws SignUpRestrictedException - When the username or email is taken
+     */
     public UserEntity signup(UserEntity userEntity) throws SignUpRestrictedException {
         UserEntity userEntityEmail = userDao.getUserByEmail(userEntity.getEmail());
         UserEntity userEntityUserName = userDao.getUserByUsername(userEntity.getUserName());
@@ -30,13 +44,35 @@ public class UserBusinessService {
         if (userEntityEmail != null) {
             throw new SignUpRestrictedException("SGR-002", "This user has already been registered, try with any other emailId");
         }
+        //the checks above race with signups on the other shards, the reservations do not
+        if (!userDao.registerUsername(userEntity)) {
+            throw new SignUpRestrictedException("SGR-001", "Try any other Username, this Username has already been taken");
+        }
+        if (!userDao.registerEmail(userEntity)) {
+            userDao.releaseUserKeys(userEntity.getUuid());
+            throw new SignUpRestrictedException("SGR-002", "This user has already been registered, try with any other emailId");
+        }
         String[] encryptedText = passwordCryptographyProvider.encrypt(userEntity.getPassword());
         userEntity.setSalt(encryptedText[0]);
         userEntity.setPassword(encryptedText[1]);
-        return userDao.createUser(userEntity);
+        try {
+            return userDao.createUser(userEntity);
+        } catch (RuntimeException e) {
+            userDao.releaseUserKeys(userEntity.getUuid());
+            throw e;
+        }
     }
 
-    @Transactional(propagation = Propagation.REQUIRED)
+    /**
+     * This method signs the user in with a new access token. The token and the user are written in transactions of their
+     * own, after which the copies of the user on the other shards are updated, so no step holds a connection while another
+     * shard is accessed.
+     *
+     * @param username
+     * @param password
+     * @return
+     * @throws AuthenticationFailedException - When the username does not exist or the password does not match
+     */
     public UserAuthTokenEntity authenticate(final String username, final String password) throws AuthenticationFailedException {
         UserEntity userEntity = userDao.getUserByUsername(username);
         if (userEntity == null) {
@@ -44,31 +80,43 @@ public class UserBusinessService {
         }
         final String encryptedPassword = passwordCryptographyProvider.encrypt(password, userEntity.getSalt());
         if (encryptedPassword.equals(userEntity.getPassword())) {
-            JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(encryptedPassword);
+            JwtTokenProvider jwtTokenProvider = statelessTokenVerifier.isEnabled() ? statelessTokenVerifier.getTokenProvider() : new JwtTokenProvider(encryptedPassword);
             UserAuthTokenEntity userAuthToken = new UserAuthTokenEntity();
             userAuthToken.setUser(userEntity);
             final ZonedDateTime now = ZonedDateTime.now();
-            final ZonedDateTime expiresAt = now.plusHours(8);
+            final ZonedDateTime expiresAt = now.plus(JwtTokenProvider.TOKEN_VALIDITY);
             userAuthToken.setAccessToken(jwtTokenProvider.generateToken(userEntity.getUuid(), now, expiresAt));
             userAuthToken.setLoginAt(now);
             userAuthToken.setExpiresAt(expiresAt);
             userAuthToken.setUuid(userEntity.getUuid());
             userDao.createAuthToken(userAuthToken);
             userDao.updateUser(userEntity);
+            userDao.updateUserCopies(userEntity);
             return userAuthToken;
         } else {
             throw new AuthenticationFailedException("ATH-002", "Password Failed");
         }
     }
 
+    /**
+     * This method signs the user out. The cached token is dropped straight away and again once the logout time has been
+     * committed, so a token read concurrently from the DB before the commit is not served afterwards.
+     *
+     * @param authorizationToken - access token sent in the authorization header
+     * @return
+     * @throws SignOutRestrictedException - When the access token does not exist in the DB
+     */
     @Transactional(propagation = Propagation.REQUIRED)
     public UserAuthTokenEntity signout(final String authorizationToken) throws SignOutRestrictedException {
-        UserAuthTokenEntity userAuthTokenEntity = userDao.getUserAuthToken(authorizationToken);
+        UserAuthTokenEntity userAuthTokenEntity = userDao.findUserAuthToken(authorizationToken);
         if (userAuthTokenEntity == null) {
             throw new SignOutRestrictedException("SGR-001", "User is not Signed in");
         }
         final ZonedDateTime now = ZonedDateTime.now();
         userAuthTokenEntity.setLogoutAt(now);
+        accessTokenCache.invalidate(authorizationToken);
+        TransactionHooks.afterCommit(() -> accessTokenCache.invalidate(authorizationToken));
+        statelessTokenVerifier.revoke(authorizationToken, userAuthTokenEntity.getExpiresAt());
         return userAuthTokenEntity;
     }
 }
@@ -0,0 +1,68 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.datasource.Shards;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * This service finishes the deletion of users on the other shards. A user is deleted on the user's own shard together
+ * with a record of the deletion, after which the copies of the user on the other shards, with the answers stored there,
+ * and the username and email of the user in USER_DIRECTORY are deleted one shard after the other. Every step can be
+ * repeated, so a deletion interrupted by a failure is finished by the next periodic run.
+ */
+@Service
+public class UserCopyReconciler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserCopyReconciler.class);
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private Shards shards;
+
+    /**
+     * This method deletes what is left of the deleted user on the other shards, and then the record of the deletion
+     *
+     * @param deletedUser - the deleted user, only its id and uuid are used
+     * @return - false if a shard failed, the deletion is then retried by the next periodic run
+     */
+    public boolean purge(final UserEntity deletedUser) {
+        try {
+            shards.forEachShard(shard -> userDao.deleteUserCopy(deletedUser));
+            userDao.releaseUserKeys(deletedUser.getUuid());
+            userDao.completeUserDeletion(deletedUser);
+            return true;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Deleting the copies of user {} failed, retrying later", deletedUser.getUuid(), e);
+            return false;
+        }
+    }
+
+    /**
+     * This method finishes the interrupted deletions, by default every minute
+     *
+     * @return number of deletions finished
+     */
+    @Scheduled(initialDelayString = "${quora.user.deletion.retry-interval-ms:60000}", fixedDelayString = "${quora.user.deletion.retry-interval-ms:60000}")
+    public int reconcile() {
+        if (!shards.isSharded()) {
+            return 0;
+        }
+        int finished = 0;
+        for (UserEntity deletedUser : userDao.getIncompleteUserDeletions()) {
+            if (purge(deletedUser)) {
+                finished++;
+            }
+        }
+        if (finished > 0) {
+            LOGGER.info("Finished the deletion of {} users on the other shards", finished);
+        }
+        return finished;
+    }
+}
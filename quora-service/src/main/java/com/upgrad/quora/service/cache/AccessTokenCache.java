@@ -0,0 +1,168 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.entity.UserAuthTokenEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache of user auth tokens keyed by access token, used in front of the USER_AUTH lookup.
+ * The cache is bounded (least recently used entries are evicted first) and an entry is never served after the
+ * expiresAt time of its token. The cache keeps its own copy of every token and its user and hands out a new copy on
+ * every hit, so a caller which modifies or attaches the returned entities never changes what other requests see.
+ */
+@Component
+public class AccessTokenCache {
+
+    private final int maxSize;
+
+    private final Map<String, UserAuthTokenEntity> entries;
+
+    //bumped by every invalidation, so a token read before an invalidation is never cached after it
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public AccessTokenCache(@Value("${quora.auth.token-cache.max-size:10000}") final int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<String, UserAuthTokenEntity>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserAuthTokenEntity> eldest) {
+                if (size() > AccessTokenCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * This method returns the cached token for the access token, or null if it is not cached or has expired
+     *
+     * @param accessToken - access token sent in the authorization header
+     * @return
+     */
+    public synchronized UserAuthTokenEntity get(final String accessToken) {
+        UserAuthTokenEntity userAuthTokenEntity = entries.get(accessToken);
+        if (userAuthTokenEntity == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (isExpired(userAuthTokenEntity)) {
+            entries.remove(accessToken);
+            evictions.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return copy(userAuthTokenEntity);
+    }
+
+    /**
+     * This method returns the current generation, to be read before the token is loaded from the DB and passed to put
+     *
+     * @return
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * This method caches a copy of the token until its expiresAt time. Tokens which have already expired are not cached,
+     * and neither are tokens loaded before a token was invalidated, as they may have been read before a sign out committed.
+     *
+     * @param userAuthTokenEntity
+     * @param generation          - generation read before the token was loaded
+     */
+    public synchronized void put(final UserAuthTokenEntity userAuthTokenEntity, final long generation) {
+        if (maxSize <= 0 || generation != this.generation || isExpired(userAuthTokenEntity)) {
+            return;
+        }
+        entries.put(userAuthTokenEntity.getAccessToken(), copy(userAuthTokenEntity));
+    }
+
+    /**
+     * This method removes the entry for the access token, e.g. when the user signs out
+     *
+     * @param accessToken
+     */
+    public synchronized void invalidate(final String accessToken) {
+        generation++;
+        entries.remove(accessToken);
+    }
+
+    /**
+     * This method removes every cached token which belongs to the user, e.g. when the user is deleted
+     *
+     * @param userUuid - uuid of the user
+     */
+    public synchronized void invalidateUser(final String userUuid) {
+        generation++;
+        final Iterator<UserAuthTokenEntity> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            UserAuthTokenEntity userAuthTokenEntity = iterator.next();
+            if (userAuthTokenEntity.getUser() != null && userUuid.equals(userAuthTokenEntity.getUser().getUuid())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private static UserAuthTokenEntity copy(final UserAuthTokenEntity userAuthTokenEntity) {
+        final UserAuthTokenEntity copy = new UserAuthTokenEntity();
+        copy.setId(userAuthTokenEntity.getId());
+        copy.setUuid(userAuthTokenEntity.getUuid());
+        copy.setAccessToken(userAuthTokenEntity.getAccessToken());
+        copy.setLoginAt(userAuthTokenEntity.getLoginAt());
+        copy.setExpiresAt(userAuthTokenEntity.getExpiresAt());
+        copy.setLogoutAt(userAuthTokenEntity.getLogoutAt());
+        copy.setUser(userAuthTokenEntity.getUser() == null ? null : copy(userAuthTokenEntity.getUser()));
+        return copy;
+    }
+
+    private static UserEntity copy(final UserEntity userEntity) {
+        final UserEntity copy = new UserEntity();
+        copy.setId(userEntity.getId());
+        copy.setUuid(userEntity.getUuid());
+        copy.setFirstName(userEntity.getFirstName());
+        copy.setLastName(userEntity.getLastName());
+        copy.setUserName(userEntity.getUserName());
+        copy.setEmail(userEntity.getEmail());
+        copy.setPassword(userEntity.getPassword());
+        copy.setSalt(userEntity.getSalt());
+        copy.setCountry(userEntity.getCountry());
+        copy.setAboutme(userEntity.getAboutme());
+        copy.setDob(userEntity.getDob());
+        copy.setRole(userEntity.getRole());
+        copy.setContactNumber(userEntity.getContactNumber());
+        return copy;
+    }
+
+    private static boolean isExpired(final UserAuthTokenEntity userAuthTokenEntity) {
+        return userAuthTokenEntity.getExpiresAt() == null || !userAuthTokenEntity.getExpiresAt().isAfter(ZonedDateTime.now());
+    }
+}
@@ -0,0 +1,68 @@
+package com.upgrad.quora.service.cache;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process set of access tokens which were signed out before they expired, and of users deleted while some of their
+ * tokens may still be valid. A token only needs to be remembered until its expiresAt time, and a user until the last
+ * token issued to the user has expired, after which JWT verification rejects them anyway. The expired entries are
+ * purged on a schedule, so revoking and checking a token never walks the whole list.
+ */
+@Component
+public class TokenRevocationList {
+
+    private final Map<String, ZonedDateTime> revokedTokens = new ConcurrentHashMap<>();
+
+    private final Map<String, ZonedDateTime> revokedUsers = new ConcurrentHashMap<>();
+
+    /**
+     * This method marks the access token as signed out until its expiry time
+     *
+     * @param accessToken
+     * @param expiresAt   - expiry time of the access token
+     */
+    public void revoke(final String accessToken, final ZonedDateTime expiresAt) {
+        if (expiresAt != null && expiresAt.isAfter(ZonedDateTime.now())) {
+            revokedTokens.put(accessToken, expiresAt);
+        }
+    }
+
+    /**
+     * This method marks every access token issued to the user as revoked until the given time
+     *
+     * @param userUuid
+     * @param until    - expiry time of the last token which may have been issued to the user
+     */
+    public void revokeUser(final String userUuid, final ZonedDateTime until) {
+        if (until.isAfter(ZonedDateTime.now())) {
+            revokedUsers.merge(userUuid, until, (previous, next) -> next.isAfter(previous) ? next : previous);
+        }
+    }
+
+    public boolean isRevoked(final String accessToken) {
+        return revokedTokens.containsKey(accessToken);
+    }
+
+    public boolean isUserRevoked(final String userUuid) {
+        return revokedUsers.containsKey(userUuid);
+    }
+
+    public int size() {
+        return revokedTokens.size() + revokedUsers.size();
+    }
+
+    /**
+     * This method forgets the tokens and users whose tokens have expired, by default every minute
+     */
+    @Scheduled(fixedDelayString = "${quora.auth.jwt.revocation-purge-interval-ms:60000}")
+    public void purgeExpired() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        revokedTokens.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+        revokedUsers.values().removeIf(until -> !until.isAfter(now));
+    }
+}
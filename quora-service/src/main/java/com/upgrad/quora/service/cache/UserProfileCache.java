@@ -0,0 +1,135 @@
+package com.upgrad.quora.service.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache of rendered user profiles keyed by user uuid. The api layer stores the already serialised response
+ * body, so a hit is served without the DB and without serialisation, and every entry carries a strong ETag computed from
+ * its body. The cache is bounded (least recently used entries are evicted first) and entries are invalidated by UserDao
+ * whenever a user is updated or deleted.
+ */
+@Component
+public class UserProfileCache {
+
+    private final int maxSize;
+
+    private final Map<String, Entry> entries;
+
+    //bumped by every invalidation, so a profile read before an invalidation is never cached after it
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public UserProfileCache(@Value("${quora.user-profile-cache.max-size:10000}") final int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > UserProfileCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * This method returns the cached profile of the user, or null if it is not cached
+     *
+     * @param userUuid - uuid of the user
+     * @return
+     */
+    public synchronized Entry get(final String userUuid) {
+        final Entry entry = entries.get(userUuid);
+        if (entry == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * This method returns the current generation, to be read before the profile is loaded from the DB and passed to put
+     *
+     * @return
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * This method caches the rendered profile of the user, unless a user was invalidated since the generation was read,
+     * in which case the profile may be stale and is only returned
+     *
+     * @param userUuid   - uuid of the user
+     * @param generation - generation read before the profile was loaded
+     * @param body       - serialised response body
+     * @return the entry for the body
+     */
+    public synchronized Entry put(final String userUuid, final long generation, final byte[] body) {
+        final Entry entry = new Entry(body);
+        if (maxSize > 0 && generation == this.generation) {
+            entries.put(userUuid, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * This method removes the cached profile of the user, e.g. when the user is updated or deleted
+     *
+     * @param userUuid - uuid of the user
+     */
+    public synchronized void invalidate(final String userUuid) {
+        generation++;
+        entries.remove(userUuid);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * A rendered profile and its strong ETag
+     */
+    public static final class Entry {
+
+        private final byte[] body;
+
+        private final String etag;
+
+        private Entry(final byte[] body) {
+            this.body = body;
+            this.etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.upgrad.quora.service.common;
+
+import java.util.List;
+
+/**
+ * One page of a keyset paginated listing together with the continuation token of the next page.
+ *
+ * @param <T> - type of the listed rows
+ */
+public final class KeysetPage<T> {
+
+    private final List<T> items;
+
+    private final String nextCursor;
+
+    public KeysetPage(final List<T> items, final String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return - continuation token of the next page, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
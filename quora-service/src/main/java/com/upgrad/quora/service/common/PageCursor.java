@@ -0,0 +1,65 @@
+package com.upgrad.quora.service.common;
+
+import com.upgrad.quora.service.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a page in a listing ordered by (date desc, id desc).
+ * The next page is read with a keyset seek past this position, so its cost does not depend on how deep the page is.
+ * The cursor is handed to clients as an opaque, URL safe continuation token.
+ */
+public final class PageCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private final ZonedDateTime date;
+
+    private final Integer id;
+
+    public PageCursor(final ZonedDateTime date, final Integer id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * @return - opaque continuation token for this position
+     */
+    public String encode() {
+        final Instant instant = date.toInstant();
+        final String raw = instant.getEpochSecond() + SEPARATOR + instant.getNano() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param token - continuation token previously returned by encode
+     * @return - the decoded position
+     * @throws InvalidCursorException - When the token was not produced by encode
+     */
+    public static PageCursor decode(final String token) throws InvalidCursorException {
+        try {
+            final String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            final String[] parts = raw.split(SEPARATOR);
+            if (parts.length != 3) {
+                throw new InvalidCursorException("PAG-001", "Entered page cursor is invalid");
+            }
+            final Instant instant = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new PageCursor(ZonedDateTime.ofInstant(instant, ZoneId.systemDefault()), Integer.valueOf(parts[2]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new InvalidCursorException("PAG-001", "Entered page cursor is invalid");
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.upgrad.quora.service.common;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Helper used to keep in-process structures, e.g. caches and the search index, in step with the DB.
+ */
+public final class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    /**
+     * This method runs the action once the current transaction has committed, so a rolled back change never reaches the
+     * in-process structures. Without a transaction the action runs straight away.
+     *
+     * @param action
+     */
+    public static void afterCommit(final Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,155 @@
+package com.upgrad.quora.service.concurrency;
+
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.UnexpectedException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of transactions running at the same time to the number of pooled connections. A request thread
+ * waits here for at most acquire-timeout and then fails with GEN-002 (503), instead of queueing inside HikariCP for the
+ * connection timeout. This matters most when requests run on virtual threads, where the number of request threads is
+ * no longer bounded by the Tomcat pool.
+ * Every pool is configured by spring.datasource.hikari, so there are maximum-pool-size connections per shard, or on the
+ * primary and on the read replica each. As the limit covers all pools, a transaction may still wait inside HikariCP
+ * when the load is skewed towards one of them, e.g. to the primary while the replica lags.
+ * Only the outermost transaction of a thread takes a permit; the DAO calls made inside it reuse its connection. A thread
+ * holds at most one permit, which also covers the transactions Shards starts on the shards while the thread holds no
+ * connection, see call.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DatabaseConcurrencyLimiter {
+
+    //0 means one permit per pooled connection
+    @Value("${quora.db.concurrency.max-concurrent:0}")
+    private int maxConcurrent;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int poolSize;
+
+    @Value("${quora.datasource.replica.url:}")
+    private String replicaUrl;
+
+    @Value("${quora.datasource.shard.urls:}")
+    private String[] shardUrls;
+
+    @Value("${quora.db.concurrency.acquire-timeout-ms:1000}")
+    private long acquireTimeoutMillis;
+
+    private Semaphore permits;
+
+    private int limit;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    //set while the current thread holds a permit
+    private final ThreadLocal<Boolean> holdingPermit = new ThreadLocal<>();
+
+    @PostConstruct
+    public void init() {
+        limit = maxConcurrent > 0 ? maxConcurrent : poolSize * pools();
+        permits = new Semaphore(limit, true);
+    }
+
+    //the pools transactions take their connection from, see ShardingConfiguration and ReadReplicaConfiguration
+    private int pools() {
+        if (shardUrls.length > 0) {
+            return shardUrls.length;
+        }
+        return replicaUrl.isEmpty() ? 1 : 2;
+    }
+
+    @Around("within(com.upgrad.quora.service..*) && (@within(org.springframework.transaction.annotation.Transactional) || @annotation(org.springframework.transaction.annotation.Transactional))")
+    public Object limit(final ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive() || holdingPermit.get() != null) {
+            return joinPoint.proceed();
+        }
+        acquire();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * This method runs work which starts its transactions programmatically, e.g. Shards, with a permit. A thread which
+     * holds a permit already runs the work straight away, as it uses one connection at a time.
+     *
+     * @param work
+     * @return - the result of the work
+     */
+    public <T> T call(final Supplier<T> work) {
+        if (holdingPermit.get() != null) {
+            return work.get();
+        }
+        acquire();
+        try {
+            return work.get();
+        } finally {
+            release();
+        }
+    }
+
+    private void acquire() {
+        final boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e);
+        }
+        if (!acquired) {
+            rejectedCount.incrementAndGet();
+            throw new UnexpectedException(GenericErrorCode.GEN_002);
+        }
+        holdingPermit.set(Boolean.TRUE);
+    }
+
+    private void release() {
+        holdingPermit.remove();
+        permits.release();
+    }
+
+    /**
+     * @return - maximum number of transactions running at the same time
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return - number of transactions running now
+     */
+    public int getInUse() {
+        return limit - permits.availablePermits();
+    }
+
+    /**
+     * @return - number of threads waiting for a permit
+     */
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * @return - number of requests rejected because no permit became free within the timeout
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
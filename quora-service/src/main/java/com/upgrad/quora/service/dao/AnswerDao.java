@@ -1,13 +1,21 @@
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.datasource.Shards;
+import com.upgrad.quora.service.dto.AnswerDetails;
 import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 @Transactional
@@ -16,17 +24,50 @@ public class AnswerDao {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private Shards shards;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
     /**
-     * This method accepts a new answer entity and creates a new record in the database
+     * This method accepts a new answer entity and creates a new record in the database, on the shard of its question
      *
      * @param answerEntity
      * @return
      */
     public AnswerEntity createAnswer(AnswerEntity answerEntity) {
+        shards.use(answerEntity.getQuestionEntity().getUuid());
         entityManager.persist(answerEntity);
         return answerEntity;
     }
 
+    /**
+     * This method creates the answers with as few round trips as possible: the inserts are sent in JDBC batches of
+     * hibernate.jdbc.batch_size rows, and the persistence context is flushed and cleared after every batch so it does
+     * not grow with the number of answers. The returned entities are detached.
+     * All answers are stored on the shard of the question of the first answer.
+     *
+     * @param answerEntities
+     * @return
+     */
+    public List<AnswerEntity> createAnswers(List<AnswerEntity> answerEntities) {
+        if (!answerEntities.isEmpty()) {
+            shards.use(answerEntities.get(0).getQuestionEntity().getUuid());
+        }
+        int pending = 0;
+        for (AnswerEntity answerEntity : answerEntities) {
+            entityManager.persist(answerEntity);
+            if (++pending == batchSize) {
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
+        }
+        entityManager.flush();
+        return answerEntities;
+    }
+
     /**
      * This method updates the answer record in the database
      *
@@ -34,6 +75,7 @@ public class AnswerDao {
      * @return
      */
     public AnswerEntity editAnswer(AnswerEntity answerEntity) {
+        shards.use(answerEntity.getUuid());
         entityManager.merge(answerEntity);
         return answerEntity;
     }
@@ -46,6 +88,7 @@ public class AnswerDao {
      */
 
     public AnswerEntity getAnswerById(String answerId) {
+        shards.use(answerId);
         try {
             return entityManager.createNamedQuery("getAnswerById", AnswerEntity.class).setParameter("uuid", answerId).getSingleResult();
         } catch (NoResultException e) {
@@ -68,13 +111,79 @@ public class AnswerDao {
     }
 
     /**
-     * This method queries the DB using question Id and fetches all answers for a specific question
+     * This method returns the date of the latest answer to the question, or null if the question has no answers
      *
-     * @param questionId - uuid of the question record
+     * @param questionEntity
      * @return
      */
-    public List<AnswerEntity> getAllAnswersToQuestion(String questionId) {
-        return entityManager.createNamedQuery("getAllAnswersToQuestion", AnswerEntity.class).setParameter("uuid", questionId).getResultList();
+    public ZonedDateTime getLastAnswerDate(QuestionEntity questionEntity) {
+        shards.use(questionEntity.getUuid());
+        return entityManager.createNamedQuery("lastAnswerDateToQuestion", ZonedDateTime.class).setParameter("id", questionEntity.getId()).getSingleResult();
+    }
+
+    /**
+     * This method fetches one page of the answers to the question in id order, seeking past the last answer of the previous page.
+     * The uuid, answer and question content of the answers are read with a single SQL statement without loading the user
+     * and question associations of the answers, and the filter on the id of the question reads only one ANSWER partition.
+     *
+     * @param questionEntity
+     * @param afterId        - id of the last answer of the previous page, null for the first page
+     * @param limit          - maximum number of answers to fetch
+     * @return
+     */
+    public List<AnswerDetails> getAnswerDetailsToQuestionPage(QuestionEntity questionEntity, Integer afterId, int limit) {
+        shards.use(questionEntity.getUuid());
+        final TypedQuery<AnswerDetails> query;
+        if (afterId == null) {
+            query = entityManager.createNamedQuery("answerDetailsToQuestionPage", AnswerDetails.class)
+                    .setParameter("questionId", questionEntity.getId());
+        } else {
+            query = entityManager.createNamedQuery("answerDetailsToQuestionPageAfter", AnswerDetails.class)
+                    .setParameter("questionId", questionEntity.getId())
+                    .setParameter("id", afterId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * This method hands the uuid and answer of every answer in the database, together with the uuid and content of its question,
+     * to the consumer one at a time. Used to rebuild the question search index. When sharded the shards are read one after the other.
+     *
+     * @param consumer
+     */
+    public void forEachAnswerDetails(Consumer<AnswerDetails> consumer) {
+        shards.readEach(shard -> ResultStreams.forEach(entityManager, entityManager.createNamedQuery("getAllAnswerDetails", AnswerDetails.class), consumer));
+    }
+
+    /**
+     * This method fetches one page of the answers posted by the user in id order, together with their questions, from the
+     * shard selected by Shards.forEachShard, as the answers are stored on the shards of their questions
+     *
+     * @param userUuid
+     * @param afterId  - id of the last answer of the previous page, null for the first page
+     * @param limit    - maximum number of answers to fetch
+     * @return
+     */
+    public List<AnswerEntity> getAnswersByUserPage(final String userUuid, final Integer afterId, final int limit) {
+        final TypedQuery<AnswerEntity> query;
+        if (afterId == null) {
+            query = entityManager.createNamedQuery("answersByUserPage", AnswerEntity.class)
+                    .setParameter("uuid", userUuid);
+        } else {
+            query = entityManager.createNamedQuery("answersByUserPageAfter", AnswerEntity.class)
+                    .setParameter("uuid", userUuid)
+                    .setParameter("id", afterId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * This method deletes the answer, which is attached to the current transaction
+     *
+     * @param answerEntity
+     */
+    public void deleteAnswer(final AnswerEntity answerEntity) {
+        entityManager.remove(answerEntity);
     }
 
 }
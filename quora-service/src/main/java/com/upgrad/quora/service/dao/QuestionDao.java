@@ -1,6 +1,12 @@
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.common.PageCursor;
+import com.upgrad.quora.service.common.TransactionHooks;
+import com.upgrad.quora.service.datasource.Shards;
 import com.upgrad.quora.service.entity.QuestionEntity;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
@@ -11,53 +17,102 @@ import javax.persistence.Query;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.*;
+import java.time.chrono.ChronoZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 @Transactional
 public class QuestionDao {
 
+    //the order of the questionAll listings, in which the pages of the shards are merged
+    private static final Comparator<QuestionEntity> NEWEST_FIRST = Comparator.comparing(QuestionEntity::getDate, ChronoZonedDateTime.timeLineOrder())
+            .thenComparing(QuestionEntity::getId)
+            .reversed();
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private Shards shards;
+
     /**
-     * Stores the new question entity in the database by calling persist method
+     * Stores the new question entity in the database by calling persist method, on the shard of its uuid
      *
      * @param questionEntity
      * @return
      */
     public QuestionEntity createQuestion(QuestionEntity questionEntity) {
+        shards.use(questionEntity.getUuid());
         entityManager.persist(questionEntity);
         return questionEntity;
     }
 
     /**
-     * Using named query , fetches all questions from the database as a list
+     * Using named query, hands every question in the database to the consumer one at a time without loading them as a list.
+     * When sharded the questions are read page by page with getQuestionsPage, so they keep their order across the shards.
      *
-     * @return
+     * @param consumer
      */
-    public List<QuestionEntity> getAllQuestions() {
-        try {
-            final List allQuestions = entityManager.createNamedQuery("questionAll", QuestionEntity.class).getResultList();
-            return allQuestions;
-
-        } catch (NoResultException e) {
-            return null;
+    public void forEachQuestion(final Consumer<QuestionEntity> consumer) {
+        if (!shards.isSharded()) {
+            ResultStreams.forEach(entityManager, entityManager.createNamedQuery("questionAll", QuestionEntity.class), consumer);
+            return;
+        }
+        List<QuestionEntity> page = getQuestionsPage(null, ResultStreams.FETCH_SIZE);
+        while (!page.isEmpty()) {
+            page.forEach(consumer);
+            final QuestionEntity last = page.get(page.size() - 1);
+            page = page.size() < ResultStreams.FETCH_SIZE ? new ArrayList<>() : getQuestionsPage(new PageCursor(last.getDate(), last.getId()), ResultStreams.FETCH_SIZE);
         }
     }
 
     /**
-     * This method accepts user id as a parameter and queries the database to fetch all the questions posted by that specific user
+     * Fetches one page of questions, newest first, using a keyset seek on (date, id) instead of an offset so that
+     * every page costs the same as the first one. When sharded every shard reads one page and the pages are merged.
+     *
+     * @param after - position of the last question of the previous page, null for the first page
+     * @param limit - maximum number of questions to fetch
+     * @return
+     */
+    public List<QuestionEntity> getQuestionsPage(final PageCursor after, final int limit) {
+        return shards.gather(shard -> {
+            final TypedQuery<QuestionEntity> query;
+            if (after == null) {
+                query = entityManager.createNamedQuery("questionAll", QuestionEntity.class);
+            } else {
+                query = entityManager.createNamedQuery("questionPageAfter", QuestionEntity.class)
+                        .setParameter("date", after.getDate())
+                        .setParameter("id", after.getId());
+            }
+            return query.setMaxResults(limit).getResultList();
+        }, NEWEST_FIRST, limit);
+    }
+
+    /**
+     * Fetches one page of the questions posted by the user, newest first, with the same keyset seek as getQuestionsPage
      *
      * @param user_id
+     * @param after   - position of the last question of the previous page, null for the first page
+     * @param limit   - maximum number of questions to fetch
      * @return
      */
-    public List<QuestionEntity> getAllQuestionsByUser(final String user_id) {
-        try {
-            return entityManager.createNamedQuery("questionByUserId", QuestionEntity.class).setParameter("user_id", user_id).getResultList();
-        } catch (NoResultException e) {
-            return null;
+    public List<QuestionEntity> getQuestionsByUserPage(final String user_id, final PageCursor after, final int limit) {
+        shards.use(user_id);
+        final TypedQuery<QuestionEntity> query;
+        if (after == null) {
+            query = entityManager.createNamedQuery("questionByUserIdPage", QuestionEntity.class)
+                    .setParameter("user_id", user_id);
+        } else {
+            query = entityManager.createNamedQuery("questionByUserIdPageAfter", QuestionEntity.class)
+                    .setParameter("user_id", user_id)
+                    .setParameter("date", after.getDate())
+                    .setParameter("id", after.getId());
         }
+        return query.setMaxResults(limit).getResultList();
     }
 
     /**
@@ -68,7 +123,9 @@ public class QuestionDao {
      */
 
     public QuestionEntity editQuestionContent(QuestionEntity questionEntity) {
+        shards.use(questionEntity.getUuid());
         entityManager.merge(questionEntity);
+        evictQuestion(questionEntity.getId());
         return questionEntity;
     }
 
@@ -84,22 +141,105 @@ public class QuestionDao {
         QuestionEntity questionEntity = getQuestionById(questionId);
         if (questionEntity != null) {
             entityManager.remove(questionEntity);
+            evictQuestion(questionEntity.getId());
         }
         return questionEntity;
     }
 
     /**
-     * This method accepts question Id as parameter and check in the database if the question exists in the DB
+     * This method accepts question Id as parameter and check in the database if the question exists in the DB.
+     * The uuid is resolved to the id through the natural id region of the second-level cache, and the question is then
+     * read from the "question" region, so a cached question is returned without a query.
      *
      * @param questionID
      * @return
      */
 
     public QuestionEntity getQuestionById(String questionID) {
-        try {
-            return entityManager.createNamedQuery("getQuestionById", QuestionEntity.class).setParameter("uuid", questionID).getSingleResult();
-        } catch (NoResultException e) {
-            return null;
-        }
+        shards.use(questionID);
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(QuestionEntity.class).load(questionID);
+    }
+
+    /**
+     * This method fetches the questions with the given uuids in a single query. Uuids which do not exist in the DB are skipped,
+     * and the questions are returned in no particular order. When sharded there is one query per shard holding any of the uuids.
+     *
+     * @param questionIds
+     * @return
+     */
+    public List<QuestionEntity> getQuestionsByIds(final Collection<String> questionIds) {
+        return shards.gather(shard -> {
+            final List<String> uuids = new ArrayList<>();
+            for (String questionId : questionIds) {
+                if (!shards.isSharded() || shards.shardOf(questionId) == shard) {
+                    uuids.add(questionId);
+                }
+            }
+            if (uuids.isEmpty()) {
+                return new ArrayList<>();
+            }
+            return entityManager.createNamedQuery("getQuestionsByIds", QuestionEntity.class).setParameter("uuids", uuids).getResultList();
+        });
+    }
+
+    /**
+     * This method reloads the question and locks its row until the end of the transaction, so the answer count and the
+     * time of the latest answer are updated by one transaction at a time and from the current values in the DB
+     *
+     * @param questionEntity - question attached to the current transaction
+     * @return
+     */
+    public QuestionEntity lockQuestion(final QuestionEntity questionEntity) {
+        shards.use(questionEntity.getUuid());
+        entityManager.refresh(questionEntity, LockModeType.PESSIMISTIC_WRITE);
+        return questionEntity;
+    }
+
+    /**
+     * This method returns the highest question id of the current shard, or null if there are no questions
+     *
+     * @return
+     */
+    public Integer getMaxQuestionId() {
+        return entityManager.createNamedQuery("maxQuestionId", Integer.class).getSingleResult();
+    }
+
+    /**
+     * This method recomputes the answer count and the time of the latest answer of the questions whose id is in
+     * [fromId, toId) from the ANSWER table and corrects the questions where they differ. The questions are locked first,
+     * like AnswerService does, so the counts are computed after the answer transactions holding them have committed.
+     * The answers of a question are stored on its shard, so the questions of the current shard are reconciled on their own.
+     *
+     * @param fromId - first id of the range
+     * @param toId   - id after the last id of the range
+     * @return number of questions corrected
+     */
+    public int reconcileAnswerActivity(final int fromId, final int toId) {
+        entityManager.createNativeQuery("select id from QUESTION where id >= :fromId and id < :toId order by id for update")
+                .setParameter("fromId", fromId)
+                .setParameter("toId", toId)
+                .getResultList();
+        return entityManager.createNativeQuery("update QUESTION q set"
+                + " answer_count = (select count(*) from ANSWER a where a.question_id = q.id),"
+                + " last_answer_at = (select max(a.date) from ANSWER a where a.question_id = q.id)"
+                + " where q.id >= :fromId and q.id < :toId"
+                + " and (q.answer_count <> (select count(*) from ANSWER a where a.question_id = q.id)"
+                + " or q.last_answer_at is distinct from (select max(a.date) from ANSWER a where a.question_id = q.id))")
+                .setParameter("fromId", fromId)
+                .setParameter("toId", toId)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(QuestionEntity.class)
+                .executeUpdate();
+    }
+
+    /**
+     * Hibernate updates the second-level cache entry of the question when the transaction commits; the entry is also
+     * evicted explicitly after the commit, so a lookup which raced with the change cannot keep a stale copy cached.
+     *
+     * @param id
+     */
+    private void evictQuestion(final Integer id) {
+        final Cache cache = entityManager.getEntityManagerFactory().getCache();
+        TransactionHooks.afterCommit(() -> cache.evict(QuestionEntity.class, id));
     }
 }
@@ -0,0 +1,41 @@
+package com.upgrad.quora.service.dao;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.function.Consumer;
+
+/**
+ * Helper used by the DAO classes to hand the rows of a query to a consumer one at a time, instead of loading the whole
+ * result list. Rows are read through a forward-only cursor and the persistence context is cleared every FETCH_SIZE rows,
+ * so the memory used does not grow with the size of the result. Must be called inside a transaction, otherwise the
+ * PostgreSQL driver ignores the fetch size and buffers the complete result set.
+ */
+final class ResultStreams {
+
+    static final int FETCH_SIZE = 500;
+
+    private ResultStreams() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> void forEach(final EntityManager entityManager, final TypedQuery<T> query, final Consumer<? super T> consumer) {
+        final ScrollableResults results = query.unwrap(org.hibernate.query.Query.class)
+                .setFetchSize(FETCH_SIZE)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            int rows = 0;
+            while (results.next()) {
+                consumer.accept((T) results.get(0));
+                if (++rows % FETCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        } finally {
+            results.close();
+        }
+    }
+}
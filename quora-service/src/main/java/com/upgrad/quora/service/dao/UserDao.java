@@ -1,26 +1,62 @@
 package com.upgrad.quora.service.dao;
 
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.upgrad.quora.service.cache.AccessTokenCache;
+import com.upgrad.quora.service.cache.UserProfileCache;
+import com.upgrad.quora.service.common.TransactionHooks;
+import com.upgrad.quora.service.datasource.ShardContext;
+import com.upgrad.quora.service.datasource.Shards;
+import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.entity.UserAuthTokenEntity;
 import com.upgrad.quora.service.entity.UserEntity;
+import org.hibernate.Cache;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.jpa.TypedParameterValue;
+import org.hibernate.type.StringType;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
 
 @Repository
 @Transactional
 public class UserDao {
+
+    //the shard holding USER_DIRECTORY, which maps the usernames and emails of the users of all shards to their uuid
+    private static final int DIRECTORY_SHARD = 0;
+
+    private static final String USERNAME_KEY = "username:";
+
+    private static final String EMAIL_KEY = "email:";
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private AccessTokenCache accessTokenCache;
+
+    @Autowired
+    private UserProfileCache userProfileCache;
+
+    @Autowired
+    private Shards shards;
+
     public UserEntity createUser(UserEntity userEntity) {
+        shards.use(userEntity.getUuid());
         entityManager.persist(userEntity);
         return userEntity;
     }
 
     public UserEntity getUser(final String userUuid) {
+        shards.use(userUuid);
         try {
             return entityManager.createNamedQuery("userByUuid", UserEntity.class).setParameter("uuid", userUuid).getSingleResult();
         } catch (NoResultException nre) {
@@ -28,7 +64,17 @@ public class UserDao {
         }
     }
 
+    /**
+     * This method looks the user up by email. When sharded the uuid of the user is read from USER_DIRECTORY and the user
+     * from the shard of the uuid, and the returned entity is detached.
+     *
+     * @param email
+     * @return
+     */
     public UserEntity getUserByEmail(final String email) {
+        if (shards.isSharded()) {
+            return getUserByDirectoryKey(EMAIL_KEY + email);
+        }
         try {
             return entityManager.createNamedQuery("userByEmail", UserEntity.class).setParameter("email", email).getSingleResult();
         } catch (NoResultException nre) {
@@ -36,7 +82,17 @@ public class UserDao {
         }
     }
 
+    /**
+     * This method looks the user up by username. When sharded the uuid of the user is read from USER_DIRECTORY and the
+     * user from the shard of the uuid, and the returned entity is detached.
+     *
+     * @param username
+     * @return
+     */
     public UserEntity getUserByUsername(final String username) {
+        if (shards.isSharded()) {
+            return getUserByDirectoryKey(USERNAME_KEY + username);
+        }
         try {
             return entityManager.createNamedQuery("userByUsername", UserEntity.class).setParameter("username", username).getSingleResult();
         } catch (NoResultException nre) {
@@ -44,20 +100,300 @@ public class UserDao {
         }
     }
 
+    /**
+     * This method reserves the username of the new user for it across all shards, which the UNIQUE constraint of USERS
+     * cannot do as it only sees the users of one shard. When sharded the username is entered in USER_DIRECTORY, whose
+     * primary key rejects a username entered before, in a transaction of its own which has committed when this method
+     * returns; release it with releaseUserKeys if the user is not created. Without shards the constraint suffices.
+     *
+     * @param userEntity - the new user
+     * @return - false if the username is taken
+     */
+    public boolean registerUsername(final UserEntity userEntity) {
+        return registerDirectoryKey(USERNAME_KEY + userEntity.getUserName(), userEntity.getUuid());
+    }
+
+    /**
+     * This method reserves the email of the new user for it across all shards, the same way as registerUsername
+     *
+     * @param userEntity - the new user
+     * @return - false if the email is taken
+     */
+    public boolean registerEmail(final UserEntity userEntity) {
+        return registerDirectoryKey(EMAIL_KEY + userEntity.getEmail(), userEntity.getUuid());
+    }
+
+    /**
+     * This method releases the username and email reserved for the user, when the user is not created or has been deleted
+     *
+     * @param userUuid
+     */
+    public void releaseUserKeys(final String userUuid) {
+        if (shards.isSharded()) {
+            shards.write(DIRECTORY_SHARD, shard -> entityManager.createNativeQuery("delete from USER_DIRECTORY where user_uuid = :uuid")
+                    .setParameter("uuid", userUuid)
+                    .executeUpdate());
+        }
+    }
+
     public UserAuthTokenEntity createAuthToken(final UserAuthTokenEntity userAuthTokenEntity) {
+        shards.use(userAuthTokenEntity.getUser().getUuid());
         entityManager.persist(userAuthTokenEntity);
         return userAuthTokenEntity;
     }
 
+    /**
+     * This method updates the user on the user's shard. When sharded the copies of the user on the other shards are brought
+     * up to date by updateUserCopies, which the caller runs once the update has committed.
+     *
+     * @param updatedUserEntity
+     */
     public void updateUser(final UserEntity updatedUserEntity) {
+        shards.use(updatedUserEntity.getUuid());
         entityManager.merge(updatedUserEntity);
+        invalidateUserProfile(updatedUserEntity.getUuid());
     }
 
-    public void deleteUser(final Integer deleteUserUuid) {
-        entityManager.remove(entityManager.find(UserEntity.class, deleteUserUuid));
+    /**
+     * This method updates the copies of the user on the other shards, one shard after the other, so a copy loaded into the
+     * second-level cache never holds an older profile than the user. It must run outside of the transaction which updated
+     * the user, as it accesses the other shards.
+     *
+     * @param userEntity - the updated user
+     */
+    public void updateUserCopies(final UserEntity userEntity) {
+        shards.writeEach(shard -> {
+            if (shard != shards.shardOf(userEntity.getUuid())) {
+                updateUserCopy(userEntity);
+            }
+        });
     }
 
+    /**
+     * This method deletes the user. The database deletes the questions, answers and tokens of the user through
+     * ON DELETE CASCADE, which Hibernate does not see, so the cached questions, their uuids and cached query results are evicted
+     * as well as the user. When sharded the deletion is recorded in USER_COPY_DELETION on the user's shard, in the same
+     * transaction, until the copies of the user on the other shards have been deleted by deleteUserCopy.
+     *
+     * @param userEntity - the user to delete
+     */
+    public void deleteUser(final UserEntity userEntity) {
+        shards.use(userEntity.getUuid());
+        final Integer deleteUserUuid = userEntity.getId();
+        final UserEntity deleteUserEntity = entityManager.find(UserEntity.class, deleteUserUuid);
+        entityManager.remove(deleteUserEntity);
+        if (shards.isSharded()) {
+            entityManager.createNativeQuery("insert into USER_COPY_DELETION(user_id, user_uuid) values (:id, :uuid)")
+                    .setParameter("id", deleteUserUuid)
+                    .setParameter("uuid", userEntity.getUuid())
+                    .executeUpdate();
+        }
+        invalidateUserProfile(deleteUserEntity.getUuid());
+        final Cache cache = entityManager.getEntityManagerFactory().getCache().unwrap(Cache.class);
+        TransactionHooks.afterCommit(() -> {
+            cache.evict(UserEntity.class, deleteUserUuid);
+            cache.evict(QuestionEntity.class);
+            cache.evictNaturalIdRegion(QuestionEntity.class);
+            cache.evictQueryRegions();
+        });
+    }
+
+    /**
+     * This method copies the user into the USERS table of the shard of the current transaction, unless the user is stored
+     * on that shard, and brings an earlier copy up to date. Answers are stored on the shard of their question, and their
+     * foreign key needs the user who answers there. Every column is copied with the id of the user: a copy loaded with the
+     * answers on its shard is put in the "user" region of the second-level cache, which is keyed by id, and must not
+     * differ from the user.
+     *
+     * @param userEntity
+     */
+    public void copyUserToCurrentShard(final UserEntity userEntity) {
+        final Integer shard = ShardContext.current();
+        if (shard == null || shard == shards.shardOf(userEntity.getUuid())) {
+            return;
+        }
+        if (updateUserCopy(userEntity) == 0) {
+            userColumns(entityManager.createNativeQuery("insert into USERS(id, uuid, firstName, lastName, userName, email, password, salt, country, aboutMe, dob, role, contactNumber)"
+                    + " select :id, :uuid, :firstName, :lastName, :userName, :email, :password, :salt, :country, :aboutMe, :dob, :role, :contactNumber"
+                    + " where not exists (select 1 from USERS where id = :id)"), userEntity)
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * This method deletes the copy of a deleted user from the shard selected by Shards.forEachShard, together with the
+     * user's answers stored there. It does nothing on the user's own shard, where deleteUser removed the user, and
+     * nothing when there is no copy, so it can be repeated.
+     *
+     * @param userEntity - the deleted user
+     */
+    public void deleteUserCopy(final UserEntity userEntity) {
+        final Integer shard = ShardContext.current();
+        if (shard == null || shard == shards.shardOf(userEntity.getUuid())) {
+            return;
+        }
+        entityManager.createNativeQuery("delete from USERS where id = :id").setParameter("id", userEntity.getId()).executeUpdate();
+    }
+
+    /**
+     * This method returns the users deleted by deleteUser whose copies on the other shards may not all have been deleted.
+     * Only the id and uuid of the returned users are set.
+     *
+     * @return
+     */
+    public List<UserEntity> getIncompleteUserDeletions() {
+        if (!shards.isSharded()) {
+            return new ArrayList<>();
+        }
+        return shards.gather(shard -> {
+            final List<UserEntity> deletedUsers = new ArrayList<>();
+            for (Object row : entityManager.createNativeQuery("select user_id, user_uuid from USER_COPY_DELETION").getResultList()) {
+                final UserEntity deletedUser = new UserEntity();
+                deletedUser.setId(((Number) ((Object[]) row)[0]).intValue());
+                deletedUser.setUuid((String) ((Object[]) row)[1]);
+                deletedUsers.add(deletedUser);
+            }
+            return deletedUsers;
+        });
+    }
+
+    /**
+     * This method removes the record of the deletion of the user, once its copies on the other shards have been deleted
+     *
+     * @param userEntity - the deleted user
+     */
+    public void completeUserDeletion(final UserEntity userEntity) {
+        if (shards.isSharded()) {
+            shards.use(userEntity.getUuid());
+            entityManager.createNativeQuery("delete from USER_COPY_DELETION where user_id = :id").setParameter("id", userEntity.getId()).executeUpdate();
+        }
+    }
+
+    private UserEntity getUserByDirectoryKey(final String key) {
+        final String userUuid = shards.read(DIRECTORY_SHARD, shard -> {
+            final List<?> uuids = entityManager.createNativeQuery("select user_uuid from USER_DIRECTORY where lookup_key = :key")
+                    .setParameter("key", key)
+                    .getResultList();
+            return uuids.isEmpty() ? null : (String) uuids.get(0);
+        });
+        if (userUuid == null) {
+            return null;
+        }
+        return shards.read(shards.shardOf(userUuid), shard -> {
+            try {
+                return entityManager.createNamedQuery("userByUuid", UserEntity.class).setParameter("uuid", userUuid).getSingleResult();
+            } catch (NoResultException nre) {
+                return null;
+            }
+        });
+    }
+
+    private boolean registerDirectoryKey(final String key, final String userUuid) {
+        if (!shards.isSharded()) {
+            return true;
+        }
+        try {
+            shards.write(DIRECTORY_SHARD, shard -> entityManager.createNativeQuery("insert into USER_DIRECTORY(lookup_key, user_uuid) values (:key, :uuid)")
+                    .setParameter("key", key)
+                    .setParameter("uuid", userUuid)
+                    .executeUpdate());
+            return true;
+        } catch (PersistenceException e) {
+            if (e.getCause() instanceof ConstraintViolationException) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    //updates the copy of the user on the shard of the current transaction, returns 0 when there is none
+    private int updateUserCopy(final UserEntity userEntity) {
+        return userColumns(entityManager.createNativeQuery("update USERS set uuid = :uuid, firstName = :firstName, lastName = :lastName,"
+                + " userName = :userName, email = :email, password = :password, salt = :salt, country = :country, aboutMe = :aboutMe,"
+                + " dob = :dob, role = :role, contactNumber = :contactNumber where id = :id"), userEntity)
+                .executeUpdate();
+    }
+
+    //the profile columns may be null, which native queries only bind with a type
+    private static Query userColumns(final Query query, final UserEntity userEntity) {
+        return query.setParameter("id", userEntity.getId())
+                .setParameter("uuid", userEntity.getUuid())
+                .setParameter("firstName", userEntity.getFirstName())
+                .setParameter("lastName", userEntity.getLastName())
+                .setParameter("userName", userEntity.getUserName())
+                .setParameter("email", userEntity.getEmail())
+                .setParameter("password", userEntity.getPassword())
+                .setParameter("salt", userEntity.getSalt())
+                .setParameter("country", new TypedParameterValue(StringType.INSTANCE, userEntity.getCountry()))
+                .setParameter("aboutMe", new TypedParameterValue(StringType.INSTANCE, userEntity.getAboutme()))
+                .setParameter("dob", new TypedParameterValue(StringType.INSTANCE, userEntity.getDob()))
+                .setParameter("role", new TypedParameterValue(StringType.INSTANCE, userEntity.getRole()))
+                .setParameter("contactNumber", new TypedParameterValue(StringType.INSTANCE, userEntity.getContactNumber()));
+    }
+
+    /**
+     * This method drops the cached profile of the user straight away, and again once the transaction has committed, so a
+     * profile read concurrently from the DB before the commit is not served afterwards
+     *
+     * @param userUuid
+     */
+    private void invalidateUserProfile(final String userUuid) {
+        userProfileCache.invalidate(userUuid);
+        TransactionHooks.afterCommit(() -> userProfileCache.invalidate(userUuid));
+    }
+
+    /**
+     * This method returns the auth token for the access token, served from the access token cache when possible.
+     * The returned entity may be detached, so it must not be modified; use findUserAuthToken for updates.
+     *
+     * @param accessToken
+     * @return
+     */
     public UserAuthTokenEntity getUserAuthToken(final String accessToken) {
+        UserAuthTokenEntity userAuthTokenEntity = accessTokenCache.get(accessToken);
+        if (userAuthTokenEntity == null) {
+            final long generation = accessTokenCache.generation();
+            userAuthTokenEntity = findUserAuthToken(accessToken);
+            if (userAuthTokenEntity != null) {
+                accessTokenCache.put(userAuthTokenEntity, generation);
+            }
+        }
+        return userAuthTokenEntity;
+    }
+
+    /**
+     * This method always reads the auth token from the database, bypassing the access token cache. When sharded the token
+     * is read from the shard of the user it was issued to, whose uuid is the audience of the JWT token, see
+     * JwtTokenProvider.generateToken; an access token which is no JWT token is not looked up.
+     *
+     * @param accessToken
+     * @return
+     */
+    public UserAuthTokenEntity findUserAuthToken(final String accessToken) {
+        if (shards.isSharded()) {
+            final String userUuid = userUuidOf(accessToken);
+            if (userUuid == null) {
+                return null;
+            }
+            shards.use(userUuid);
+        }
+        return queryUserAuthToken(accessToken);
+    }
+
+    //the signature is not verified here, the audience only selects the shard on which the token is looked up by its value
+    private static String userUuidOf(final String accessToken) {
+        if (accessToken == null) {
+            return null;
+        }
+        try {
+            final List<String> audience = JWT.decode(accessToken).getAudience();
+            return audience == null || audience.isEmpty() ? null : audience.get(0);
+        } catch (JWTDecodeException e) {
+            return null;
+        }
+    }
+
+    private UserAuthTokenEntity queryUserAuthToken(final String accessToken) {
         try {
             return entityManager.createNamedQuery("userAuthTokenByAccessToken", UserAuthTokenEntity.class).setParameter("accessToken", accessToken).getSingleResult();
         } catch (NoResultException nre) {
@@ -0,0 +1,108 @@
+package com.upgrad.quora.service.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+/**
+ * This Configuration sends the read-only transactions to a streaming replica of the database and everything else to the
+ * primary. It is enabled by setting quora.datasource.replica.url; the replica uses the username and password of the
+ * primary unless quora.datasource.replica.username/password are set, and a pool configured like the primary's.
+ * Reads only go to the replica while its lag, probed every lag-probe-interval-ms, is at most max-lag-ms, so a request
+ * may not see a write made less than max-lag-ms earlier by another request.
+ */
+@Configuration
+@ConditionalOnProperty(name = "quora.datasource.replica.url")
+public class ReadReplicaConfiguration {
+
+    @Bean
+    public HikariDataSource primaryDataSource(final DataSourceProperties properties, final Environment environment) {
+        return pool(properties, environment, properties.determineUrl(), properties.determineUsername(), properties.determinePassword());
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(final DataSourceProperties properties, final Environment environment,
+                                              @Value("${quora.datasource.replica.url}") final String url,
+                                              @Value("${quora.datasource.replica.username:}") final String username,
+                                              @Value("${quora.datasource.replica.password:}") final String password) {
+        final boolean ownCredentials = !username.isEmpty();
+        final HikariDataSource replica = pool(properties, environment, url,
+                ownCredentials ? username : properties.determineUsername(),
+                ownCredentials ? password : properties.determinePassword());
+        replica.setPoolName(replica.getPoolName() == null ? "replica" : replica.getPoolName() + "-replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") final HikariDataSource replicaDataSource,
+                                               @Value("${quora.datasource.replica.lag-query:}") final String lagQuery,
+                                               @Value("${quora.datasource.replica.max-lag-ms:1000}") final long maxLagMillis) {
+        //reads go to the primary until the first probe, run by the scheduler enabled by ServiceConfiguration
+        return new ReplicaLagMonitor(replicaDataSource, lagQuery, maxLagMillis);
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(@Qualifier("primaryDataSource") final HikariDataSource primaryDataSource,
+                                                                 @Qualifier("replicaDataSource") final HikariDataSource replicaDataSource,
+                                                                 final ReplicaLagMonitor replicaLagMonitor) {
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, replicaLagMonitor);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(final ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        //reads the auto-commit and isolation defaults from a connection taken outside of a transaction, i.e. from the primary
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+    @Bean
+    public JpaTransactionManager transactionManager(final EntityManagerFactory entityManagerFactory) {
+        final JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+        transactionManager.setJpaDialect(new ReplicaAwareJpaDialect());
+        return transactionManager;
+    }
+
+    @Bean
+    public MeterBinder replicaRoutingMetrics(final ReplicaLagMonitor replicaLagMonitor, final ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return registry -> {
+            Gauge.builder("quora.db.replica.lag", replicaLagMonitor, ReplicaLagMonitor::getLagMillis)
+                    .description("replication lag in ms measured by the last probe, -1 if it failed")
+                    .register(registry);
+            FunctionCounter.builder("quora.db.replica.connections", readWriteRoutingDataSource, ReadWriteRoutingDataSource::getReplicaConnections)
+                    .tag("route", "replica")
+                    .register(registry);
+            FunctionCounter.builder("quora.db.replica.connections", readWriteRoutingDataSource, ReadWriteRoutingDataSource::getFallbackConnections)
+                    .tag("route", "primary")
+                    .register(registry);
+        };
+    }
+
+    //a pool with the spring.datasource.hikari settings of the primary
+    static HikariDataSource pool(final DataSourceProperties properties, final Environment environment, final String url,
+                                         final String username, final String password) {
+        final HikariDataSource dataSource = new HikariDataSource();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setDriverClassName(properties.determineDriverClassName());
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        return dataSource;
+    }
+}
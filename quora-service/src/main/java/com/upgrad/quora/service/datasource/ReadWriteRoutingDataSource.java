@@ -0,0 +1,67 @@
+package com.upgrad.quora.service.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Routes the connections of read-only transactions, e.g. @Transactional(readOnly = true) service methods, to the replica
+ * and all other connections to the primary. Reads go to the primary as well while the ReplicaLagMonitor reports the
+ * replica as unusable, i.e. lagging by more than the allowed lag or not answering.
+ * The read-only flag of a transaction is only known once the transaction has begun, so this DataSource must be wrapped
+ * in a LazyConnectionDataSourceProxy, which asks it for a connection on the first statement.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    private final AtomicLong replicaConnections = new AtomicLong();
+
+    private final AtomicLong fallbackConnections = new AtomicLong();
+
+    public ReadWriteRoutingDataSource(final DataSource primary, final DataSource replica, final ReplicaLagMonitor replicaLagMonitor) {
+        this.replicaLagMonitor = replicaLagMonitor;
+        final Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Route.PRIMARY;
+        }
+        if (!replicaLagMonitor.isReplicaUsable()) {
+            fallbackConnections.incrementAndGet();
+            return Route.PRIMARY;
+        }
+        replicaConnections.incrementAndGet();
+        return Route.REPLICA;
+    }
+
+    /**
+     * @return - number of connections of read-only transactions taken from the replica
+     */
+    public long getReplicaConnections() {
+        return replicaConnections.get();
+    }
+
+    /**
+     * @return - number of connections of read-only transactions taken from the primary because the replica was unusable
+     */
+    public long getFallbackConnections() {
+        return fallbackConnections.get();
+    }
+}
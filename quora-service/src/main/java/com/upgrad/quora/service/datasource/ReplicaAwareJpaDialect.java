@@ -0,0 +1,56 @@
+package com.upgrad.quora.service.datasource;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+
+/**
+ * Keeps what read-only transactions read from the replica out of the second-level cache. A replica may still return the
+ * state from before a write which has just evicted the entity on the primary, and putting that state in the cache would
+ * serve it long after the replica has caught up. Read-only transactions therefore only read from the cache.
+ */
+public class ReplicaAwareJpaDialect extends HibernateJpaDialect {
+
+    @Override
+    public Object beginTransaction(final EntityManager entityManager, final TransactionDefinition definition) throws SQLException {
+        final Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly()) {
+            return transactionData;
+        }
+        //the session outlives the transaction with open-in-view, so its cache mode is restored afterwards
+        final Session session = entityManager.unwrap(Session.class);
+        final CacheMode previousCacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.GET);
+        return new ReadOnlyTransactionData(transactionData, session, previousCacheMode);
+    }
+
+    @Override
+    public void cleanupTransaction(final Object transactionData) {
+        if (transactionData instanceof ReadOnlyTransactionData) {
+            final ReadOnlyTransactionData readOnly = (ReadOnlyTransactionData) transactionData;
+            readOnly.session.setCacheMode(readOnly.previousCacheMode);
+            super.cleanupTransaction(readOnly.transactionData);
+        } else {
+            super.cleanupTransaction(transactionData);
+        }
+    }
+
+    private static final class ReadOnlyTransactionData {
+
+        private final Object transactionData;
+
+        private final Session session;
+
+        private final CacheMode previousCacheMode;
+
+        private ReadOnlyTransactionData(final Object transactionData, final Session session, final CacheMode previousCacheMode) {
+            this.transactionData = transactionData;
+            this.session = session;
+            this.previousCacheMode = previousCacheMode;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.upgrad.quora.service.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Probes the replication lag of the replica, so reads fall back to the primary while the replica is behind or down.
+ * The lag query returns the lag in milliseconds, or null when the replica is not replicating. The default one, for a
+ * PostgreSQL streaming replica, returns null unless the WAL receiver is streaming from the primary, as a replica cut off
+ * from the primary has replayed everything it received and would look up to date. While streaming it returns 0 when the
+ * replica has replayed everything it received, since the time of the last replayed transaction says nothing about the
+ * lag of an idle primary. The status of the WAL receiver is only visible to members of pg_read_all_stats, e.g. through
+ * pg_monitor, which the user of the replica has to be granted. The replica is usable when the last probe succeeded and reported at most maxLagMillis.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    static final String POSTGRES_LAG_QUERY = "select case when not exists (select 1 from pg_stat_wal_receiver where status = 'streaming') then null"
+            + " when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0"
+            + " else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000, 0) end";
+
+    private final DataSource replica;
+
+    private final String lagQuery;
+
+    private final long maxLagMillis;
+
+    //-1 until the first successful probe and after a failed one
+    private volatile long lagMillis = -1;
+
+    public ReplicaLagMonitor(final DataSource replica, final String lagQuery, final long maxLagMillis) {
+        this.replica = replica;
+        this.lagQuery = lagQuery == null || lagQuery.isEmpty() ? POSTGRES_LAG_QUERY : lagQuery;
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    /**
+     * This method measures the lag of the replica, every lag-probe-interval-ms
+     */
+    @Scheduled(fixedDelayString = "${quora.datasource.replica.lag-probe-interval-ms:1000}")
+    public void probe() {
+        final boolean wasUsable = isReplicaUsable();
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            if (resultSet.next()) {
+                final long lag = resultSet.getLong(1);
+                lagMillis = resultSet.wasNull() ? -1 : Math.max(0, lag);
+            } else {
+                lagMillis = -1;
+            }
+        } catch (SQLException e) {
+            lagMillis = -1;
+            if (wasUsable) {
+                LOGGER.warn("Replica lag probe failed, reading from the primary", e);
+            }
+        }
+        final boolean usable = isReplicaUsable();
+        if (usable != wasUsable) {
+            LOGGER.info(usable ? "Replica lag {} ms, reading from the replica" : "Replica lag {} ms, reading from the primary", lagMillis);
+        }
+    }
+
+    public boolean isReplicaUsable() {
+        final long lag = lagMillis;
+        return lag >= 0 && lag <= maxLagMillis;
+    }
+
+    /**
+     * @return - lag of the replica in ms measured by the last probe, -1 if it failed
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public long getMaxLagMillis() {
+        return maxLagMillis;
+    }
+}
@@ -0,0 +1,73 @@
+package com.upgrad.quora.service.datasource;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds the shard of the transaction running on the current thread. The DAOs select the shard of the rows they access
+ * before their first statement and the ShardRoutingDataSource takes the connection of the transaction from that shard,
+ * so a transaction runs on exactly one shard. Selecting a second shard in the same transaction fails instead of reading
+ * or writing the wrong shard; work which spans shards is run by Shards, in one transaction per shard.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * @return - the shard selected on the current thread, or null if none is selected
+     */
+    public static Integer current() {
+        return SHARD.get();
+    }
+
+    /**
+     * This method selects the shard for the current transaction, which keeps it until it completes
+     *
+     * @param shard
+     * @throws IllegalStateException - When called outside of a transaction, or when the transaction runs on another shard
+     */
+    public static void select(final int shard) {
+        final Integer selected = SHARD.get();
+        if (selected == null) {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                throw new IllegalStateException("A shard can only be selected inside a transaction");
+            }
+            SHARD.set(shard);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(final int status) {
+                    SHARD.remove();
+                }
+            });
+        } else if (selected != shard) {
+            throw new IllegalStateException("The transaction runs on shard " + selected + " and cannot access shard " + shard);
+        }
+    }
+
+    /**
+     * This method runs the work with the shard selected and restores the previous selection afterwards. The work is
+     * expected to start transactions of its own, which then run on the shard.
+     *
+     * @param shard
+     * @param work
+     * @return - the result of the work
+     */
+    static <T> T call(final int shard, final Supplier<T> work) {
+        final Integer previous = SHARD.get();
+        SHARD.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                SHARD.remove();
+            } else {
+                SHARD.set(previous);
+            }
+        }
+    }
+}
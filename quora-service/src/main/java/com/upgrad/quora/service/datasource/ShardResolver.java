@@ -0,0 +1,52 @@
+package com.upgrad.quora.service.datasource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Maps a uuid to the shard it is stored on. A user is stored on the shard of the user's uuid, together with the user's
+ * access tokens, the user's questions and all answers to those questions.
+ * The uuids of questions and answers are drawn by newUuid so that they map to the shard of their user and question, which
+ * lets every row with a uuid be read from one shard. The shard is derived from String.hashCode, which is specified by the
+ * Java language, so all instances agree on it; changing the number of shards remaps the uuids and needs the rows moved.
+ */
+@Component
+public class ShardResolver {
+
+    private final int shardCount;
+
+    public ShardResolver(@Value("${quora.datasource.shard.urls:}") final String[] urls) {
+        this.shardCount = Math.max(1, urls.length);
+    }
+
+    /**
+     * @return - number of shards, 1 when quora.datasource.shard.urls is not set
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * @param uuid - uuid of a user, question or answer
+     * @return - index of the shard the row is stored on
+     */
+    public int shardOf(final String uuid) {
+        return shardCount == 1 ? 0 : Math.floorMod(uuid.hashCode(), shardCount);
+    }
+
+    /**
+     * This method draws random uuids until one maps to the shard, on average as many as there are shards
+     *
+     * @param shard - index of the shard the new row is stored on
+     * @return
+     */
+    public String newUuid(final int shard) {
+        String uuid;
+        do {
+            uuid = UUID.randomUUID().toString();
+        } while (shardOf(uuid) != shard);
+        return uuid;
+    }
+}
@@ -0,0 +1,52 @@
+package com.upgrad.quora.service.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes every connection to the shard selected in the ShardContext, and to the first shard when none is selected, e.g.
+ * for the connection Hibernate reads the database defaults with at startup.
+ * The DAOs select the shard inside the transaction, after it has begun, so this DataSource must be wrapped in a
+ * LazyConnectionDataSourceProxy, which asks it for a connection on the first statement.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private final List<DataSource> shards;
+
+    public ShardRoutingDataSource(final List<? extends DataSource> shards) {
+        this.shards = new ArrayList<>(shards);
+        final Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        final Integer shard = ShardContext.current();
+        return shard == null ? 0 : shard;
+    }
+
+    /**
+     * This method closes the connection pools of the shards, when the application context is closed
+     */
+    @Override
+    public void close() throws IOException {
+        for (DataSource shard : shards) {
+            if (shard instanceof Closeable) {
+                ((Closeable) shard).close();
+            }
+        }
+    }
+}
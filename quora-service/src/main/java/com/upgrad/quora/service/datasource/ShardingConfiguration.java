@@ -0,0 +1,57 @@
+package com.upgrad.quora.service.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This Configuration spreads the users, their access tokens, their questions and the answers to their questions over
+ * several databases, the shards, see ShardResolver. It is enabled by setting quora.datasource.shard.urls to the comma
+ * separated urls of the shards; every shard uses the username and password of spring.datasource and a pool configured by
+ * spring.datasource.hikari, named after the pool of the primary with a -shardN suffix.
+ * Every shard is set up with quora.sql, the migrations and then quora_shard.sql, which makes the ids of the shards disjoint
+ * and adds the tables used across the shards, e.g. USER_DIRECTORY, which keeps usernames and emails unique.
+ * Sharding cannot be combined with the read replica of ReadReplicaConfiguration.
+ */
+@Configuration
+@ConditionalOnProperty(name = "quora.datasource.shard.urls")
+public class ShardingConfiguration {
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(final DataSourceProperties properties, final Environment environment,
+                                                         final ObjectProvider<MeterRegistry> meterRegistry,
+                                                         @Value("${quora.datasource.shard.urls}") final String[] urls) {
+        final List<HikariDataSource> shards = new ArrayList<>(urls.length);
+        for (int shard = 0; shard < urls.length; shard++) {
+            final HikariDataSource dataSource = ReadReplicaConfiguration.pool(properties, environment, urls[shard],
+                    properties.determineUsername(), properties.determinePassword());
+            dataSource.setPoolName((dataSource.getPoolName() == null ? "quora" : dataSource.getPoolName()) + "-shard" + shard);
+            final MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry != null) {
+                dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+            shards.add(dataSource);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(final ShardRoutingDataSource shardRoutingDataSource) {
+        //reads the auto-commit and isolation defaults from a connection taken outside of a transaction, i.e. from the first shard
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+}
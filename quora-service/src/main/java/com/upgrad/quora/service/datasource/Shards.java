@@ -0,0 +1,284 @@
+package com.upgrad.quora.service.datasource;
+
+import com.upgrad.quora.service.concurrency.DatabaseConcurrencyLimiter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * Helper used by the DAO classes to pick the shard of the current transaction, and to run the work which spans shards:
+ * lookups by columns which do not determine the shard, the listings of all rows, which are merged here, and the writes
+ * which keep the copies of users on other shards in step.
+ * Work on the shard the caller's transaction runs on joins that transaction. Any other shard is accessed in a
+ * transaction of its own, one shard after the other on the calling thread, so the entities returned by these reads are
+ * detached. That is only done while the caller holds no connection, i.e. outside of a transaction or in one which has not
+ * selected a shard yet, as the DAOs select the shard before their first statement; a thread therefore never waits for a
+ * second connection while holding one. The transactions of their own take a permit of the DatabaseConcurrencyLimiter,
+ * unless the thread holds one already. Work which would need another shard than the one of the caller's transaction
+ * fails with an IllegalStateException instead.
+ * With a single shard, i.e. when quora.datasource.shard.urls is not set, everything runs in the caller's transaction.
+ */
+@Component
+public class Shards {
+
+    private final ShardResolver shardResolver;
+
+    private final DatabaseConcurrencyLimiter databaseConcurrencyLimiter;
+
+    private final TransactionTemplate readOnly;
+
+    private final TransactionTemplate readWrite;
+
+    public Shards(final ShardResolver shardResolver, final DatabaseConcurrencyLimiter databaseConcurrencyLimiter,
+                  final PlatformTransactionManager transactionManager) {
+        this.shardResolver = shardResolver;
+        this.databaseConcurrencyLimiter = databaseConcurrencyLimiter;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnly.setReadOnly(true);
+        this.readWrite = new TransactionTemplate(transactionManager);
+        this.readWrite.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public boolean isSharded() {
+        return shardResolver.getShardCount() > 1;
+    }
+
+    /**
+     * @param uuid - uuid of a user, question or answer
+     * @return - index of the shard the row is stored on
+     */
+    public int shardOf(final String uuid) {
+        return shardResolver.shardOf(uuid);
+    }
+
+    /**
+     * This method selects the shard the row with the uuid is stored on for the current transaction
+     *
+     * @param uuid - uuid of a user, question or answer
+     */
+    public void use(final String uuid) {
+        if (isSharded()) {
+            ShardContext.select(shardResolver.shardOf(uuid));
+        }
+    }
+
+    /**
+     * This method selects the shard for the current transaction
+     *
+     * @param shard
+     */
+    public void use(final int shard) {
+        if (isSharded()) {
+            ShardContext.select(shard);
+        }
+    }
+
+    /**
+     * This method runs the lookup on one shard after the other until it finds something
+     *
+     * @param lookup - receives the index of the shard, returns null when nothing was found
+     * @return - the first result found, or null
+     */
+    public <T> T findFirst(final IntFunction<T> lookup) {
+        if (!isSharded()) {
+            return lookup.apply(0);
+        }
+        checkNoShardSelected();
+        for (int shard = 0; shard < shardResolver.getShardCount(); shard++) {
+            final T found = read(shard, lookup);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * This method runs the query on every shard and returns all rows, shard by shard
+     *
+     * @param query - receives the index of the shard
+     * @return
+     */
+    public <T> List<T> gather(final IntFunction<List<T>> query) {
+        if (!isSharded()) {
+            return query.apply(0);
+        }
+        checkNoShardSelected();
+        final List<T> rows = new ArrayList<>();
+        for (int shard = 0; shard < shardResolver.getShardCount(); shard++) {
+            rows.addAll(read(shard, query));
+        }
+        return rows;
+    }
+
+    /**
+     * This method runs the query on every shard and merges the sorted rows of the shards into the first limit rows of
+     * all shards. Each shard only has to return its own first limit rows, so a page costs one page per shard.
+     *
+     * @param query - receives the index of the shard, returns at most limit rows sorted by order
+     * @param order
+     * @param limit
+     * @return
+     */
+    public <T> List<T> gather(final IntFunction<List<T>> query, final Comparator<? super T> order, final int limit) {
+        if (!isSharded()) {
+            return query.apply(0);
+        }
+        checkNoShardSelected();
+        final PriorityQueue<Cursor<T>> cursors = new PriorityQueue<>(shardResolver.getShardCount(), (a, b) -> order.compare(a.head, b.head));
+        for (int shard = 0; shard < shardResolver.getShardCount(); shard++) {
+            final Cursor<T> cursor = new Cursor<>(read(shard, query).iterator());
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        final List<T> rows = new ArrayList<>();
+        while (rows.size() < limit && !cursors.isEmpty()) {
+            final Cursor<T> cursor = cursors.poll();
+            rows.add(cursor.head);
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * This method runs the work on every shard, each in a read-only transaction of its own
+     *
+     * @param work - receives the index of the shard
+     */
+    public void readEach(final IntConsumer work) {
+        if (!isSharded()) {
+            work.accept(0);
+            return;
+        }
+        checkNoShardSelected();
+        for (int shard = 0; shard < shardResolver.getShardCount(); shard++) {
+            read(shard, current -> {
+                work.accept(current);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * This method runs the work on every shard, each in a read-write transaction of its own which commits before the
+     * next shard is written
+     *
+     * @param work - receives the index of the shard
+     */
+    public void writeEach(final IntConsumer work) {
+        if (!isSharded()) {
+            work.accept(0);
+            return;
+        }
+        checkNoShardSelected();
+        for (int shard = 0; shard < shardResolver.getShardCount(); shard++) {
+            write(shard, current -> {
+                work.accept(current);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * This method runs the work on one shard, in the caller's transaction if it runs on the shard and otherwise in a
+     * read-only transaction of its own
+     *
+     * @param shard
+     * @param work  - receives the index of the shard
+     * @return - the result of the work
+     * @throws IllegalStateException - When the caller's transaction runs on another shard
+     */
+    public <T> T read(final int shard, final IntFunction<T> work) {
+        return run(shard, readOnly, work);
+    }
+
+    /**
+     * This method runs the work on one shard, in the caller's transaction if it runs on the shard and otherwise in a
+     * read-write transaction of its own, which has committed when it returns
+     *
+     * @param shard
+     * @param work  - receives the index of the shard
+     * @return - the result of the work
+     * @throws IllegalStateException - When the caller's transaction runs on another shard
+     */
+    public <T> T write(final int shard, final IntFunction<T> work) {
+        return run(shard, readWrite, work);
+    }
+
+    /**
+     * This method runs the work once per shard with the shard selected, but outside of any transaction; the transactions
+     * started by the work, e.g. by calling a DAO, run on the shard
+     *
+     * @param work - receives the index of the shard
+     */
+    public void forEachShard(final IntConsumer work) {
+        if (!isSharded()) {
+            work.accept(0);
+            return;
+        }
+        checkNoShardSelected();
+        for (int shard = 0; shard < shardResolver.getShardCount(); shard++) {
+            final int current = shard;
+            ShardContext.call(shard, () -> {
+                work.accept(current);
+                return null;
+            });
+        }
+    }
+
+    private <T> T run(final int shard, final TransactionTemplate transactionTemplate, final IntFunction<T> work) {
+        if (!isSharded()) {
+            return work.apply(0);
+        }
+        if (holdsShard()) {
+            ShardContext.select(shard);
+            return work.apply(shard);
+        }
+        return databaseConcurrencyLimiter.call(() -> ShardContext.call(shard, () -> transactionTemplate.execute(status -> work.apply(shard))));
+    }
+
+    //a transaction which has selected its shard may hold a connection of it
+    private static boolean holdsShard() {
+        return TransactionSynchronizationManager.isActualTransactionActive() && ShardContext.current() != null;
+    }
+
+    private static void checkNoShardSelected() {
+        if (holdsShard()) {
+            throw new IllegalStateException("The transaction runs on shard " + ShardContext.current() + " and cannot run work spanning the shards");
+        }
+    }
+
+    //the rows of one shard, positioned on the row to be merged next
+    private static final class Cursor<T> {
+
+        private final Iterator<T> rows;
+
+        private T head;
+
+        private Cursor(final Iterator<T> rows) {
+            this.rows = rows;
+        }
+
+        private boolean advance() {
+            if (!rows.hasNext()) {
+                return false;
+            }
+            head = rows.next();
+            return true;
+        }
+    }
+}
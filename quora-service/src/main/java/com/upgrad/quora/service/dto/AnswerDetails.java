@@ -0,0 +1,46 @@
+package com.upgrad.quora.service.dto;
+
+/**
+ * Read-only projection of an answer together with the content of its question, populated by a JPQL constructor
+ * expression so that listing answers does not load the answer, question and user entities.
+ */
+public class AnswerDetails {
+
+    private final Integer id;
+
+    private final String uuid;
+
+    private final String answer;
+
+    private final String questionUuid;
+
+    private final String questionContent;
+
+    public AnswerDetails(final Integer id, final String uuid, final String answer, final String questionUuid, final String questionContent) {
+        this.id = id;
+        this.uuid = uuid;
+        this.answer = answer;
+        this.questionUuid = questionUuid;
+        this.questionContent = questionContent;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getAnswer() {
+        return answer;
+    }
+
+    public String getQuestionUuid() {
+        return questionUuid;
+    }
+
+    public String getQuestionContent() {
+        return questionContent;
+    }
+}
@@ -12,13 +12,19 @@ import java.time.ZonedDateTime;
 @Table(name = "answer")
 @NamedQueries({
         @NamedQuery(name = "getAnswerById", query = "select a from AnswerEntity a where a.uuid=:uuid"),
-        @NamedQuery(name = "getAllAnswersToQuestion", query = "select a from AnswerEntity a where a.questionEntity.uuid = :uuid")
+        @NamedQuery(name = "lastAnswerDateToQuestion", query = "select max(a.date) from AnswerEntity a where a.questionEntity.id = :id"),
+        @NamedQuery(name = "getAllAnswerDetails", query = "select new com.upgrad.quora.service.dto.AnswerDetails(a.id, a.uuid, a.answer, q.uuid, q.content) from AnswerEntity a join a.questionEntity q"),
+        @NamedQuery(name = "answersByUserPage", query = "select a from AnswerEntity a join fetch a.questionEntity where a.userEntity.uuid = :uuid order by a.id"),
+        @NamedQuery(name = "answersByUserPageAfter", query = "select a from AnswerEntity a join fetch a.questionEntity where a.userEntity.uuid = :uuid and a.id > :id order by a.id"),
+        @NamedQuery(name = "answerDetailsToQuestionPage", query = "select new com.upgrad.quora.service.dto.AnswerDetails(a.id, a.uuid, a.answer, q.uuid, q.content) from AnswerEntity a join a.questionEntity q where a.questionEntity.id = :questionId order by a.id"),
+        @NamedQuery(name = "answerDetailsToQuestionPageAfter", query = "select new com.upgrad.quora.service.dto.AnswerDetails(a.id, a.uuid, a.answer, q.uuid, q.content) from AnswerEntity a join a.questionEntity q where a.questionEntity.id = :questionId and a.id > :id order by a.id")
 })
 public class AnswerEntity {
 
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SequenceGenerator(name = "answerIdGenerator", sequenceName = "answer_id_seq", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "answerIdGenerator")
     private Integer id;
 
     @Column(name = "uuid")
@@ -1,5 +1,9 @@
 package com.upgrad.quora.service.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
@@ -12,18 +16,35 @@ import java.time.ZonedDateTime;
 @Table(name = "question", schema = "public")
 @NamedQueries(
         {
-                @NamedQuery(name = "questionAll", query = "select q from QuestionEntity q"),
-                @NamedQuery(name = "getQuestionById", query = "select q from QuestionEntity q where q.uuid=:uuid"),
-                @NamedQuery(name = "questionByUserId", query = "select q from QuestionEntity q where q.userEntity.uuid= :user_id")
+                @NamedQuery(name = "questionAll", query = "select q from QuestionEntity q order by q.date desc, q.id desc"),
+                @NamedQuery(name = "questionPageAfter", query = "select q from QuestionEntity q where q.date < :date or (q.date = :date and q.id < :id) order by q.date desc, q.id desc"),
+                @NamedQuery(name = "maxQuestionId", query = "select max(q.id) from QuestionEntity q"),
+                @NamedQuery(name = "getQuestionsByIds", query = "select q from QuestionEntity q where q.uuid in :uuids"),
+                @NamedQuery(name = "questionByUserIdPage", query = "select q from QuestionEntity q where q.userEntity.uuid = :user_id order by q.date desc, q.id desc"),
+                @NamedQuery(name = "questionByUserIdPageAfter", query = "select q from QuestionEntity q where q.userEntity.uuid = :user_id and (q.date < :date or (q.date = :date and q.id < :id)) order by q.date desc, q.id desc")
         }
 )
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "question")
+//uuid lookups resolve the id from the natural id region; unlike cached query results, the entries are not invalidated
+//by every change to the QUESTION table, such as the answer count updated with each answer
+@NaturalIdCache(region = "question-uuid")
 public class QuestionEntity {
 
     @Id
     @Column(name = "ID")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SequenceGenerator(name = "questionIdGenerator", sequenceName = "question_id_seq", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "questionIdGenerator")
     private Integer id;
 
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
     public String getUuid() {
         return uuid;
     }
@@ -48,6 +69,22 @@ public class QuestionEntity {
         this.date = date;
     }
 
+    public int getAnswerCount() {
+        return answerCount;
+    }
+
+    public void setAnswerCount(int answerCount) {
+        this.answerCount = answerCount;
+    }
+
+    public ZonedDateTime getLastAnswerAt() {
+        return lastAnswerAt;
+    }
+
+    public void setLastAnswerAt(ZonedDateTime lastAnswerAt) {
+        this.lastAnswerAt = lastAnswerAt;
+    }
+
     public UserEntity getUserEntity() {
         return userEntity;
     }
@@ -56,6 +93,7 @@ public class QuestionEntity {
         this.userEntity = userEntity;
     }
 
+    @NaturalId
     @Column(name = "UUID")
     @Size(max = 200)
     @NotNull
@@ -69,6 +107,13 @@ public class QuestionEntity {
     @Column(name = "DATE")
     private ZonedDateTime date;
 
+    //maintained by AnswerService under a lock on the question row, see QuestionDao.lockQuestion
+    @Column(name = "ANSWER_COUNT")
+    private int answerCount;
+
+    @Column(name = "LAST_ANSWER_AT")
+    private ZonedDateTime lastAnswerAt;
+
     @ManyToOne
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "user_id")
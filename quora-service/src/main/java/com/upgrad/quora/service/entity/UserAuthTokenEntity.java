@@ -22,7 +22,8 @@ public class UserAuthTokenEntity implements Serializable {
 
     @Id
     @Column(name = "ID")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SequenceGenerator(name = "userAuthIdGenerator", sequenceName = "user_auth_id_seq", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "userAuthIdGenerator")
     private Integer id;
 
     @Column(name = "UUID")
@@ -4,6 +4,8 @@ import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -14,19 +16,22 @@ import java.io.Serializable;
 @Table(name = "users")
 @NamedQueries(
         {
-                @NamedQuery(name = "userByUuid", query = "select u from UserEntity u where u.uuid = :uuid"),
+                @NamedQuery(name = "userByUuid", query = "select u from UserEntity u where u.uuid = :uuid",
+                        hints = @QueryHint(name = "org.hibernate.cacheable", value = "true")),
                 @NamedQuery(name = "userByEmail", query = "select u from UserEntity u where u.email =:email"),
                 @NamedQuery(name = "userByUsername", query = "select u from UserEntity u where u.userName =:username"),
                 @NamedQuery(name = "deleteUser", query = "delete from UserEntity u where u.uuid = :uuid")
         }
 )
 
-
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
 public class UserEntity implements Serializable {
 
     @Id
     @Column(name = "ID")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SequenceGenerator(name = "userIdGenerator", sequenceName = "users_id_seq", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "userIdGenerator")
     private Integer id;
 
     @Column(name = "UUID")
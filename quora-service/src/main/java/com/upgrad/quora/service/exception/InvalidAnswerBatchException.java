@@ -0,0 +1,12 @@
+package com.upgrad.quora.service.exception;
+
+/**
+ * InvalidAnswerBatchException is thrown when a batch of answers is empty, too large or contains an empty answer.
+ */
+public class InvalidAnswerBatchException extends QuoraException {
+
+    public InvalidAnswerBatchException(final String code, final String errorMessage) {
+        super(code, errorMessage);
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.upgrad.quora.service.exception;
+
+/**
+ * InvalidCursorException is thrown when the continuation token passed to a paginated listing cannot be decoded.
+ */
+public class InvalidCursorException extends QuoraException {
+
+    public InvalidCursorException(final String code, final String errorMessage) {
+        super(code, errorMessage);
+    }
+
+}
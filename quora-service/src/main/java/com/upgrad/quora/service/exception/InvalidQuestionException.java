@@ -1,42 +1,12 @@
 package com.upgrad.quora.service.exception;
 
-import java.io.PrintStream;
-import java.io.PrintWriter;
-
 /**
  * InvalidQuestionException is thrown when the question is not found in the database.
  */
-public class InvalidQuestionException extends Exception {
-    private final String code;
-    private final String errorMessage;
+public class InvalidQuestionException extends QuoraException {
 
     public InvalidQuestionException(final String code, final String errorMessage) {
-        this.code = code;
-        this.errorMessage = errorMessage;
-    }
-
-    @Override
-    public void printStackTrace() {
-        super.printStackTrace();
-    }
-
-    @Override
-    public void printStackTrace(PrintStream s) {
-        super.printStackTrace(s);
-    }
-
-    @Override
-    public void printStackTrace(PrintWriter s) {
-        super.printStackTrace(s);
-    }
-
-    public String getCode() {
-        return code;
-    }
-
-    public String getErrorMessage() {
-        return errorMessage;
+        super(code, errorMessage);
     }
 
 }
-
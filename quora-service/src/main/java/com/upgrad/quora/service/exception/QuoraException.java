@@ -0,0 +1,27 @@
+package com.upgrad.quora.service.exception;
+
+/**
+ * QuoraException is the base of the exceptions which are answered with an error code and message, e.g. ATHR-001.
+ * They describe an expected outcome of a request, not a fault, so they do not capture a stack trace, which is most of the
+ * cost of creating an exception. Having no stack trace, suppressed exceptions or cause to change, an instance can be
+ * created once and thrown again, as AuthenticationService does for the access token failures.
+ */
+public abstract class QuoraException extends Exception {
+    private final String code;
+    private final String errorMessage;
+
+    protected QuoraException(final String code, final String errorMessage) {
+        super(errorMessage, null, false, false);
+        this.code = code;
+        this.errorMessage = errorMessage;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+}
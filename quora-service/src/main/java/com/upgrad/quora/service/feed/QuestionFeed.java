@@ -0,0 +1,176 @@
+package com.upgrad.quora.service.feed;
+
+import com.upgrad.quora.service.entity.QuestionEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process ranking of the questions for the home feed, kept sorted by a time-decayed activity score.
+ * The score of a question is log2(1 + answers) + (time of the latest activity) / halfLife: every half-life by which a
+ * question's latest activity is older counts as much as a doubling of its answers. Scores grow with time instead of
+ * decaying, so the score of a question only changes when it is written to, and the order of the questions which were not
+ * written to stays the same as time passes.
+ * Only the maxSize best scoring questions are kept. A question dropped from the ranking scores below every kept question
+ * and keeps doing so until it gets an answer, which puts it back, so the kept questions are the top maxSize questions.
+ * Reading the first k questions walks k nodes of the skip list; writes replace one node and are safe from many threads.
+ */
+@Component
+public class QuestionFeed {
+
+    private final int maxSize;
+
+    private final double halfLifeSeconds;
+
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>();
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    //ConcurrentSkipListSet.size() walks the whole list
+    private final AtomicInteger size = new AtomicInteger();
+
+    public QuestionFeed(@Value("${quora.feed.max-size:10000}") final int maxSize,
+                        @Value("${quora.feed.half-life-hours:12}") final double halfLifeHours) {
+        this.maxSize = maxSize;
+        this.halfLifeSeconds = halfLifeHours * 3600;
+    }
+
+    /**
+     * This method adds the question to the feed, or moves it to the position of its current answer count and latest answer
+     *
+     * @param questionEntity
+     */
+    public void update(final QuestionEntity questionEntity) {
+        update(questionEntity.getUuid(), score(questionEntity));
+    }
+
+    /**
+     * This method adds the question with the given score, or moves it if it is already in the feed
+     *
+     * @param questionUuid
+     * @param score        - see score(QuestionEntity)
+     */
+    public void update(final String questionUuid, final double score) {
+        if (maxSize <= 0) {
+            return;
+        }
+        final Entry entry = new Entry(questionUuid, score);
+        //compute serialises the writes to one question, so it is never in the ranking twice
+        entries.compute(questionUuid, (uuid, previous) -> {
+            if (previous == null) {
+                size.incrementAndGet();
+            } else {
+                ranking.remove(previous);
+            }
+            ranking.add(entry);
+            return entry;
+        });
+        trim();
+    }
+
+    /**
+     * This method removes the question from the feed, e.g. when it is deleted
+     *
+     * @param questionUuid
+     */
+    public void remove(final String questionUuid) {
+        entries.computeIfPresent(questionUuid, (uuid, previous) -> {
+            ranking.remove(previous);
+            size.decrementAndGet();
+            return null;
+        });
+    }
+
+    /**
+     * This method empties the feed, before it is rebuilt from the DB
+     */
+    public void clear() {
+        for (String questionUuid : entries.keySet()) {
+            remove(questionUuid);
+        }
+    }
+
+    /**
+     * This method returns the uuids of the k best scoring questions, best first
+     *
+     * @param k - maximum number of uuids returned
+     * @return
+     */
+    public List<String> top(final int k) {
+        final List<String> result = new ArrayList<>(Math.max(0, Math.min(k, maxSize)));
+        final Iterator<Entry> iterator = ranking.iterator();
+        while (result.size() < k && iterator.hasNext()) {
+            result.add(iterator.next().questionUuid);
+        }
+        return result;
+    }
+
+    /**
+     * @return - number of questions in the feed
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * This method computes the activity score of the question from its answer count and the time of its latest answer,
+     * or the time it was posted if it has no answers
+     *
+     * @param questionEntity
+     * @return
+     */
+    public double score(final QuestionEntity questionEntity) {
+        final ZonedDateTime lastAnswerAt = questionEntity.getLastAnswerAt();
+        final ZonedDateTime activeAt = lastAnswerAt != null && lastAnswerAt.isAfter(questionEntity.getDate()) ? lastAnswerAt : questionEntity.getDate();
+        return score(questionEntity.getAnswerCount(), activeAt.toEpochSecond());
+    }
+
+    /**
+     * @param answerCount         - number of answers to the question
+     * @param activeAtEpochSecond - time of the latest answer, or of the question if it has none
+     * @return the activity score
+     */
+    public double score(final int answerCount, final long activeAtEpochSecond) {
+        return Math.log(1 + Math.max(0, answerCount)) / Math.log(2) + activeAtEpochSecond / halfLifeSeconds;
+    }
+
+    private void trim() {
+        while (size.get() > maxSize) {
+            final Entry last = ranking.pollLast();
+            if (last == null) {
+                return;
+            }
+            //the entry may have been replaced since it was polled, then its replacement stays
+            if (entries.remove(last.questionUuid, last)) {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    //best score first, ties broken by uuid so two questions are never equal
+    private static final class Entry implements Comparable<Entry> {
+
+        private final String questionUuid;
+
+        private final double score;
+
+        private Entry(final String questionUuid, final double score) {
+            this.questionUuid = questionUuid;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(final Entry other) {
+            final int byScore = Double.compare(other.score, score);
+            return byScore != 0 ? byScore : questionUuid.compareTo(other.questionUuid);
+        }
+    }
+}
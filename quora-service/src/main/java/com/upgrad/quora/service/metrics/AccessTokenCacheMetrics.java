@@ -0,0 +1,33 @@
+package com.upgrad.quora.service.metrics;
+
+import com.upgrad.quora.service.cache.AccessTokenCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the hit, miss and eviction counters and the size of the access token cache.
+ */
+@Component
+public class AccessTokenCacheMetrics implements MeterBinder {
+
+    @Autowired
+    private AccessTokenCache accessTokenCache;
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("quora.token.cache.requests", accessTokenCache, AccessTokenCache::getHits)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("quora.token.cache.requests", accessTokenCache, AccessTokenCache::getMisses)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("quora.token.cache.evictions", accessTokenCache, AccessTokenCache::getEvictions)
+                .register(registry);
+        Gauge.builder("quora.token.cache.size", accessTokenCache, AccessTokenCache::size)
+                .register(registry);
+    }
+}
@@ -0,0 +1,116 @@
+package com.upgrad.quora.service.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Times every public method of the DAO classes and counts the rows each one returns.
+ * Rows are the size of a returned collection, 1 or 0 for a single entity, or the number of rows handed to the consumer
+ * of a streaming method. The timers are tagged with the DAO class and method, so a slow request can be attributed to
+ * the query behind it. The meters of a method are registered on its first call and kept, as looking them up in the
+ * registry on every call would cost about as much as the cached lookups being measured.
+ */
+@Aspect
+@Component
+public class DaoMetricsAspect {
+
+    static final String TIMER_NAME = "quora.dao";
+
+    static final String ROWS_NAME = "quora.dao.rows";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    @Around("within(com.upgrad.quora.service.dao..*) && execution(public * *(..))")
+    public Object measure(final ProceedingJoinPoint joinPoint) throws Throwable {
+        final MethodMeters methodMeters = meters.computeIfAbsent(((MethodSignature) joinPoint.getSignature()).getMethod(), MethodMeters::new);
+        final long[] streamedRows = {-1};
+        final Object[] args = joinPoint.getArgs();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof Consumer) {
+                args[i] = countingConsumer((Consumer<Object>) args[i], streamedRows);
+            }
+        }
+
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            final Object result = joinPoint.proceed(args);
+            final long rows = streamedRows[0] >= 0 ? streamedRows[0] : rows(methodMeters.method, result);
+            if (rows >= 0) {
+                methodMeters.rows().record(rows);
+            }
+            return result;
+        } catch (Throwable t) {
+            exception = t.getClass().getSimpleName();
+            throw t;
+        } finally {
+            sample.stop(methodMeters.timer(exception));
+        }
+    }
+
+    //the timers of a DAO method by exception, and its rows
+    private final class MethodMeters {
+
+        private final String dao;
+
+        private final String method;
+
+        private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+        //registered on the first call returning rows, so methods which do not read rows have no rows summary
+        private volatile DistributionSummary rows;
+
+        private MethodMeters(final Method method) {
+            this.dao = method.getDeclaringClass().getSimpleName();
+            this.method = method.getName();
+        }
+
+        private Timer timer(final String exception) {
+            return timers.computeIfAbsent(exception,
+                    e -> Timer.builder(TIMER_NAME).tags("dao", dao, "method", method, "exception", e).register(meterRegistry));
+        }
+
+        private DistributionSummary rows() {
+            if (rows == null) {
+                rows = DistributionSummary.builder(ROWS_NAME).tags("dao", dao, "method", method).register(meterRegistry);
+            }
+            return rows;
+        }
+    }
+
+    private static Consumer<Object> countingConsumer(final Consumer<Object> consumer, final long[] rows) {
+        rows[0] = 0;
+        return row -> {
+            rows[0]++;
+            consumer.accept(row);
+        };
+    }
+
+    //-1 when the method does not read rows, e.g. createUser returns the entity it was passed
+    private static long rows(final String method, final Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (method.startsWith("get") || method.startsWith("find")) {
+            return result == null ? 0 : 1;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,35 @@
+package com.upgrad.quora.service.metrics;
+
+import com.upgrad.quora.service.concurrency.DatabaseConcurrencyLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the limit, the permits in use, the waiting threads and the rejections of the database concurrency limiter.
+ */
+@Component
+public class DatabaseConcurrencyMetrics implements MeterBinder {
+
+    @Autowired
+    private DatabaseConcurrencyLimiter databaseConcurrencyLimiter;
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("quora.db.concurrency.limit", databaseConcurrencyLimiter, DatabaseConcurrencyLimiter::getLimit)
+                .description("transactions allowed to run at the same time")
+                .register(registry);
+        Gauge.builder("quora.db.concurrency.in.use", databaseConcurrencyLimiter, DatabaseConcurrencyLimiter::getInUse)
+                .description("transactions running")
+                .register(registry);
+        Gauge.builder("quora.db.concurrency.waiting", databaseConcurrencyLimiter, DatabaseConcurrencyLimiter::getWaiting)
+                .description("requests waiting to start a transaction")
+                .register(registry);
+        FunctionCounter.builder("quora.db.concurrency.rejected", databaseConcurrencyLimiter, DatabaseConcurrencyLimiter::getRejectedCount)
+                .description("requests rejected because no transaction could be started within the timeout")
+                .register(registry);
+    }
+}
@@ -0,0 +1,40 @@
+package com.upgrad.quora.service.metrics;
+
+import com.upgrad.quora.service.business.PasswordCryptographyProvider;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the counters of the password hashing pool: hash time, time spent waiting in the queue, queue depth and rejections.
+ */
+@Component
+public class PasswordHashingMetrics implements MeterBinder {
+
+    @Autowired
+    private PasswordCryptographyProvider passwordCryptographyProvider;
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        FunctionTimer.builder("quora.password.hash", passwordCryptographyProvider,
+                PasswordCryptographyProvider::getHashCount, PasswordCryptographyProvider::getHashTimeNanos, TimeUnit.NANOSECONDS)
+                .description("time spent hashing passwords")
+                .register(registry);
+        FunctionTimer.builder("quora.password.hash.queue.wait", passwordCryptographyProvider,
+                PasswordCryptographyProvider::getHashCount, PasswordCryptographyProvider::getQueueWaitNanos, TimeUnit.NANOSECONDS)
+                .description("time hashing requests waited for a hashing thread")
+                .register(registry);
+        Gauge.builder("quora.password.hash.queue.depth", passwordCryptographyProvider, PasswordCryptographyProvider::getQueueDepth)
+                .description("hashing requests waiting for a hashing thread")
+                .register(registry);
+        FunctionCounter.builder("quora.password.hash.rejected", passwordCryptographyProvider, PasswordCryptographyProvider::getRejectedCount)
+                .description("hashing requests rejected because the pool was saturated")
+                .register(registry);
+    }
+}
@@ -0,0 +1,73 @@
+package com.upgrad.quora.service.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes the hit, miss and put counters and the hit ratio of the Hibernate second-level cache regions of the
+ * questions and users, of the natural id region of the question uuids and of the query cache, to size the regions in
+ * ehcache.xml.
+ * The counters stay at zero unless hibernate.generate_statistics is enabled.
+ */
+@Component
+public class SecondLevelCacheMetrics implements MeterBinder {
+
+    private static final String[] REGIONS = {"question", "user"};
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (String region : REGIONS) {
+            bind(registry, region, statistics,
+                    s -> regionStatistics(s, region).getHitCount(),
+                    s -> regionStatistics(s, region).getMissCount(),
+                    s -> regionStatistics(s, region).getPutCount());
+        }
+        bind(registry, "question-uuid", statistics,
+                s -> s.getNaturalIdCacheStatistics("question-uuid").getHitCount(),
+                s -> s.getNaturalIdCacheStatistics("question-uuid").getMissCount(),
+                s -> s.getNaturalIdCacheStatistics("question-uuid").getPutCount());
+        bind(registry, "query", statistics,
+                Statistics::getQueryCacheHitCount, Statistics::getQueryCacheMissCount, Statistics::getQueryCachePutCount);
+    }
+
+    private static void bind(final MeterRegistry registry, final String region, final Statistics statistics,
+                             final ToDoubleFunction<Statistics> hits, final ToDoubleFunction<Statistics> misses,
+                             final ToDoubleFunction<Statistics> puts) {
+        FunctionCounter.builder("quora.hibernate.cache.requests", statistics, hits)
+                .tag("region", region)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("quora.hibernate.cache.requests", statistics, misses)
+                .tag("region", region)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("quora.hibernate.cache.puts", statistics, puts)
+                .tag("region", region)
+                .register(registry);
+        Gauge.builder("quora.hibernate.cache.hit.ratio", statistics, s -> {
+            final double hit = hits.applyAsDouble(s);
+            final double total = hit + misses.applyAsDouble(s);
+            return total == 0 ? 0 : hit / total;
+        })
+                .tag("region", region)
+                .register(registry);
+    }
+
+    private static SecondLevelCacheStatistics regionStatistics(final Statistics statistics, final String region) {
+        return statistics.getSecondLevelCacheStatistics(region);
+    }
+}
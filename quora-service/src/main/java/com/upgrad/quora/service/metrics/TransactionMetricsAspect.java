@@ -0,0 +1,63 @@
+package com.upgrad.quora.service.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Times the outermost transactions, e.g. QuestionService.createQuestion, from the connection checkout to the commit.
+ * The transaction holds its pooled connection for that long, so the pool size needed is about the rate of transactions
+ * times this duration, which can be compared with hikaricp.connections.usage.
+ * Services which are not transactional themselves, e.g. AdminBusinessService, run one transaction per DAO call; those
+ * are timed too, with the DAO as the service tag.
+ * Runs inside the DatabaseConcurrencyLimiter, so the time spent waiting for a permit is not included. The timers are
+ * registered on the first transaction of a method and kept.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class TransactionMetricsAspect {
+
+    static final String TIMER_NAME = "quora.db.transaction";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    //timers by method and exception
+    private final ConcurrentMap<Method, ConcurrentMap<String, Timer>> timers = new ConcurrentHashMap<>();
+
+    @Around("within(com.upgrad.quora.service..*) && (@within(org.springframework.transaction.annotation.Transactional) || @annotation(org.springframework.transaction.annotation.Transactional))")
+    public Object measure(final ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable t) {
+            exception = t.getClass().getSimpleName();
+            throw t;
+        } finally {
+            sample.stop(timer(((MethodSignature) joinPoint.getSignature()).getMethod(), exception));
+        }
+    }
+
+    private Timer timer(final Method method, final String exception) {
+        return timers.computeIfAbsent(method, m -> new ConcurrentHashMap<>()).computeIfAbsent(exception, e -> Timer.builder(TIMER_NAME)
+                .tags("service", method.getDeclaringClass().getSimpleName(), "method", method.getName(), "exception", e)
+                .register(meterRegistry));
+    }
+}
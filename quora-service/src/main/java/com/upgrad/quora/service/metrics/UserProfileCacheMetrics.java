@@ -0,0 +1,33 @@
+package com.upgrad.quora.service.metrics;
+
+import com.upgrad.quora.service.cache.UserProfileCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the hit, miss and eviction counters and the size of the user profile cache.
+ */
+@Component
+public class UserProfileCacheMetrics implements MeterBinder {
+
+    @Autowired
+    private UserProfileCache userProfileCache;
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("quora.profile.cache.requests", userProfileCache, UserProfileCache::getHits)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("quora.profile.cache.requests", userProfileCache, UserProfileCache::getMisses)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("quora.profile.cache.evictions", userProfileCache, UserProfileCache::getEvictions)
+                .register(registry);
+        Gauge.builder("quora.profile.cache.size", userProfileCache, UserProfileCache::size)
+                .register(registry);
+    }
+}
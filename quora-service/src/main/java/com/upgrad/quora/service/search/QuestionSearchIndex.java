@@ -0,0 +1,283 @@
+package com.upgrad.quora.service.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-process inverted index over the content of the questions and the text of their answers. Every question is one
+ * document made of the question content and all its answers, so a question also matches the words used in its answers.
+ * A search only reads the postings of the query terms and ranks the matching questions with BM25, so its cost depends
+ * on how common the query terms are and not on the number of questions. Indexing a question or an answer only changes
+ * the postings of the terms of that text, so adding an answer costs the same however many answers the question has.
+ * The index holds uuids only; callers load the questions from the DB, which also drops questions deleted behind the
+ * index's back, e.g. between the lookup of the questions of a deleted user and the cascade which deletes them.
+ */
+@Component
+public class QuestionSearchIndex {
+
+    //BM25 term frequency saturation and document length normalisation
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Document> documents = new HashMap<>();
+
+    private final Map<String, Map<Document, Integer>> postings = new HashMap<>();
+
+    private long totalLength;
+
+    /**
+     * This method adds the question to the index, or replaces its content if it is already indexed
+     *
+     * @param questionUuid
+     * @param content
+     */
+    public void indexQuestion(final String questionUuid, final String content) {
+        final Map<String, Integer> terms = termFrequencies(content);
+        lock.writeLock().lock();
+        try {
+            final Document document = documents.computeIfAbsent(questionUuid, Document::new);
+            post(document, document.questionTerms, -1);
+            document.questionTerms = terms;
+            post(document, terms, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method removes the question and all its answers from the index
+     *
+     * @param questionUuid
+     */
+    public void removeQuestion(final String questionUuid) {
+        lock.writeLock().lock();
+        try {
+            final Document document = documents.remove(questionUuid);
+            if (document != null) {
+                for (String term : document.termFrequencies.keySet()) {
+                    unpost(document, term);
+                }
+                totalLength -= document.length;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method adds the answer to the document of its question, or replaces its text if it is already indexed
+     *
+     * @param questionUuid
+     * @param answerUuid
+     * @param answer
+     */
+    public void indexAnswer(final String questionUuid, final String answerUuid, final String answer) {
+        final Map<String, Integer> terms = termFrequencies(answer);
+        lock.writeLock().lock();
+        try {
+            final Document document = documents.computeIfAbsent(questionUuid, Document::new);
+            final Map<String, Integer> previous = document.answerTerms.put(answerUuid, terms);
+            if (previous != null) {
+                post(document, previous, -1);
+            }
+            post(document, terms, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method removes the answer from the document of its question
+     *
+     * @param questionUuid
+     * @param answerUuid
+     */
+    public void removeAnswer(final String questionUuid, final String answerUuid) {
+        lock.writeLock().lock();
+        try {
+            final Document document = documents.get(questionUuid);
+            final Map<String, Integer> previous = document == null ? null : document.answerTerms.remove(answerUuid);
+            if (previous != null) {
+                post(document, previous, -1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method empties the index, before it is rebuilt from the DB
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            postings.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method returns the uuids of the k questions which match the query best, best match first
+     *
+     * @param query - free text, matched word by word and case insensitively
+     * @param k     - maximum number of uuids returned
+     * @return
+     */
+    public List<String> search(final String query, final int k) {
+        final Set<String> queryTerms = new LinkedHashSet<>(tokenize(query));
+        if (queryTerms.isEmpty() || k <= 0) {
+            return Collections.emptyList();
+        }
+        final PriorityQueue<Hit> top = new PriorityQueue<>(k + 1);
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty()) {
+                return Collections.emptyList();
+            }
+            final int count = documents.size();
+            final double averageLength = (double) totalLength / count;
+            final Map<Document, Double> scores = new HashMap<>();
+            for (String term : queryTerms) {
+                final Map<Document, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                final double idf = Math.log(1 + (count - posting.size() + 0.5) / (posting.size() + 0.5));
+                for (Map.Entry<Document, Integer> entry : posting.entrySet()) {
+                    final int tf = entry.getValue();
+                    final double norm = K1 * (1 - B + B * entry.getKey().length / averageLength);
+                    scores.merge(entry.getKey(), idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+                }
+            }
+            for (Map.Entry<Document, Double> score : scores.entrySet()) {
+                top.add(new Hit(score.getKey().questionUuid, score.getValue()));
+                if (top.size() > k) {
+                    top.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        final List<String> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(top.poll().questionUuid);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * @return - number of questions in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(final String text) {
+        final List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static Map<String, Integer> termFrequencies(final String text) {
+        final Map<String, Integer> terms = new HashMap<>();
+        for (String token : tokenize(text)) {
+            terms.merge(token, 1, Integer::sum);
+        }
+        return terms;
+    }
+
+    //adds (sign 1) or subtracts (sign -1) the term frequencies of a question or answer text to those of the document
+    private void post(final Document document, final Map<String, Integer> terms, final int sign) {
+        for (Map.Entry<String, Integer> entry : terms.entrySet()) {
+            final String term = entry.getKey();
+            final int tf = document.termFrequencies.getOrDefault(term, 0) + sign * entry.getValue();
+            if (tf > 0) {
+                document.termFrequencies.put(term, tf);
+                postings.computeIfAbsent(term, key -> new HashMap<>()).put(document, tf);
+            } else {
+                document.termFrequencies.remove(term);
+                unpost(document, term);
+            }
+            document.length += sign * entry.getValue();
+            totalLength += sign * entry.getValue();
+        }
+    }
+
+    private void unpost(final Document document, final String term) {
+        final Map<Document, Integer> posting = postings.get(term);
+        if (posting != null) {
+            posting.remove(document);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    //identity equality on purpose, a question has exactly one document
+    private static final class Document {
+
+        private final String questionUuid;
+
+        private Map<String, Integer> questionTerms = Collections.emptyMap();
+
+        private final Map<String, Map<String, Integer>> answerTerms = new HashMap<>();
+
+        //of the question and all its answers, as posted
+        private final Map<String, Integer> termFrequencies = new HashMap<>();
+
+        private int length;
+
+        private Document(final String questionUuid) {
+            this.questionUuid = questionUuid;
+        }
+    }
+
+    private static final class Hit implements Comparable<Hit> {
+
+        private final String questionUuid;
+
+        private final double score;
+
+        private Hit(final String questionUuid, final double score) {
+            this.questionUuid = questionUuid;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(final Hit other) {
+            return Double.compare(score, other.score);
+        }
+    }
+}